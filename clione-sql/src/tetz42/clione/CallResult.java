@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione;
+
+import static tetz42.clione.common.Util.*;
+
+import java.io.Closeable;
+import java.sql.CallableStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import tetz42.clione.common.exception.SQLRuntimeException;
+import tetz42.clione.util.ResultMap;
+
+/**
+ * The results of the stored procedure called by
+ * {@link SQLExecutor#call(java.util.Map)}.<br>
+ * The result sets are traversed in order by {@link CallResult#next(Class)},
+ * each of which is mapped lazily by {@link SQLIterator}. The update counts
+ * between them are skipped and kept in {@link CallResult#updateCounts()}.
+ * The values of the {@link OutParam} instances are read when all of the
+ * results are traversed, because some drivers return them only after that.
+ * <br>
+ * Note: The statement is NOT closed automatically. So you should call
+ * {@link CallResult#close()} finally, which also reads the OUT parameters.
+ *
+ * @see OutParam
+ * @author tetz
+ */
+public class CallResult implements Closeable {
+
+	private final SQLExecutor executor;
+	private final CallableStatement cs;
+	private final List<Object> params;
+	private final List<Integer> updateCounts = new ArrayList<Integer>();
+	private boolean isResultSet;
+	private boolean isFirst = true;
+	private boolean isEnded = false;
+
+	CallResult(SQLExecutor executor, CallableStatement cs,
+			List<Object> params, boolean isResultSet) {
+		this.executor = executor;
+		this.cs = cs;
+		this.params = params;
+		this.isResultSet = isResultSet;
+	}
+
+	/**
+	 * Moves to the next result set and returns the iterator wrapper of it.
+	 * The conversion rules are the same as {@link SQLIterator#iterator()}.
+	 * The previous result set is closed.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @return the iterator wrapper of the result set, or null if no result set
+	 *         is left
+	 * @throws SQLRuntimeException
+	 */
+	public <T> SQLIterator<T> next(Class<T> entityClass) {
+		try {
+			ResultSet rs = nextResultSet();
+			if (rs == null)
+				return null;
+			return SQLIterator.genIterator(executor, entityClass, rs, false);
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(mkStringByCRLF(e.getMessage(),
+					executor.getSQLInfo()), e);
+		}
+	}
+
+	/**
+	 * Moves to the next result set and returns the iterator wrapper of it,
+	 * which returns ResultMap instances.
+	 *
+	 * @return the iterator wrapper of the result set, or null if no result set
+	 *         is left
+	 * @throws SQLRuntimeException
+	 * @see CallResult#next(Class)
+	 */
+	public SQLIterator<ResultMap> next() {
+		return next(ResultMap.class);
+	}
+
+	/**
+	 * Returns the iterator wrapper of the cursor returned as the OUT
+	 * parameter. The results are traversed to the end before the cursor is
+	 * read.
+	 *
+	 * @param <T>
+	 * @param cursor
+	 *            the OUT parameter generated by {@link OutParam#cursor()}
+	 * @param entityClass
+	 *            the class of result instance
+	 * @return the iterator wrapper of the cursor, or null if the cursor is
+	 *         null
+	 * @throws SQLRuntimeException
+	 */
+	public <T> SQLIterator<T> cursor(OutParam<ResultSet> cursor,
+			Class<T> entityClass) {
+		try {
+			while (nextResultSet() != null)
+				;
+			ResultSet rs = cursor.get();
+			if (rs == null)
+				return null;
+			return SQLIterator.genIterator(executor, entityClass, rs, false);
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(mkStringByCRLF(e.getMessage(),
+					executor.getSQLInfo()), e);
+		}
+	}
+
+	/**
+	 * @return the update counts of the results traversed
+	 */
+	public List<Integer> updateCounts() {
+		return updateCounts;
+	}
+
+	/**
+	 * Traverses the rest results, reads the OUT parameters and closes the
+	 * statement.
+	 *
+	 * @throws SQLRuntimeException
+	 */
+	@Override
+	public void close() {
+		try {
+			while (nextResultSet() != null)
+				;
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(mkStringByCRLF(e.getMessage(),
+					executor.getSQLInfo()), e);
+		} finally {
+			executor.closeStatement();
+		}
+	}
+
+	private ResultSet nextResultSet() throws SQLException {
+		if (isEnded)
+			return null;
+		if (!isFirst)
+			isResultSet = cs.getMoreResults();
+		isFirst = false;
+		while (!isResultSet) {
+			int count = cs.getUpdateCount();
+			if (count == -1) {
+				isEnded = true;
+				readOutParams();
+				return null;
+			}
+			updateCounts.add(count);
+			isResultSet = cs.getMoreResults();
+		}
+		return cs.getResultSet();
+	}
+
+	private void readOutParams() throws SQLException {
+		int i = 1;
+		for (Object param : params) {
+			if (param instanceof OutParam<?>)
+				((OutParam<?>) param).read(cs, i);
+			i++;
+		}
+	}
+}
@@ -0,0 +1,516 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import tetz42.clione.common.Function;
+import tetz42.clione.common.exception.IORuntimeException;
+import tetz42.clione.common.exception.SQLRuntimeException;
+import tetz42.clione.common.exception.UnsupportedTypeException;
+import tetz42.clione.common.exception.WrapException;
+import tetz42.clione.util.Config;
+import tetz42.clione.util.CsvOptions;
+import tetz42.clione.util.CsvReader;
+import tetz42.clione.util.ParamMap;
+
+/**
+ * Loads the records of a CSV file into the database by the insert statement
+ * of the SQLExecutor.<br>
+ * The values of each record are mapped to the SQL parameters by the header
+ * of the file, and inserted by {@link SQLExecutor#bulkInsert(Iterable, int)}
+ * chunk by chunk. The file is parsed on the Executor of the SQLExecutor
+ * while the previous chunk is inserted on the current thread. If the Executor
+ * runs the task on the current thread, the file is parsed and inserted by
+ * turns instead. For example:
+ *
+ * <pre>
+ * CsvLoader.Result result = sqlManager.useFile(getClass(), &quot;Insert.sql&quot;)
+ * 		.csvLoader().type(&quot;age&quot;, Integer.class).commitInterval(10000)
+ * 		.rejectFile(Paths.get(&quot;people.rejected.csv&quot;)).load(
+ * 				Paths.get(&quot;people.csv&quot;));
+ * </pre>
+ *
+ * The record which can not be parsed or converted, and the record the
+ * database rejects, are written into the reject file in the same format, if
+ * it is specified. Otherwise, the exception is thrown.
+ *
+ * @see SQLExecutor#csvLoader()
+ * @author tetz
+ */
+public class CsvLoader {
+
+	private static final int QUEUE_SIZE = 4;
+
+	/**
+	 * The result of the load.
+	 */
+	public static class Result {
+		/** The number of the rows inserted. */
+		public final long loaded;
+		/** The number of the records written into the reject file. */
+		public final long rejected;
+
+		Result(long loaded, long rejected) {
+			this.loaded = loaded;
+			this.rejected = rejected;
+		}
+	}
+
+	private static class Chunk {
+		final List<ParamMap> rows = new ArrayList<ParamMap>();
+		final List<String> records = new ArrayList<String>();
+		final Throwable failure;
+
+		Chunk(Throwable failure) {
+			this.failure = failure;
+		}
+	}
+
+	private static final Chunk END = new Chunk(null);
+
+	private final SQLExecutor executor;
+	private final SQLManager manager;
+	private final Executor asyncExecutor;
+	private final Map<String, Class<?>> types = new HashMap<String, Class<?>>();
+	private CsvOptions options = CsvOptions.csv();
+	private String[] columns;
+	private int rowsPerStatement = Config.get().BATCH_SIZE;
+	private int commitInterval = 0;
+	private Path rejectFile;
+
+	CsvLoader(SQLExecutor executor, SQLManager manager, Executor asyncExecutor) {
+		this.executor = executor;
+		this.manager = manager;
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	/**
+	 * @param options
+	 *            the format of the file
+	 * @return this
+	 */
+	public CsvLoader options(CsvOptions options) {
+		this.options = options;
+		return this;
+	}
+
+	/**
+	 * Specifies the parameter names of the columns of the file without the
+	 * header.
+	 *
+	 * @param names
+	 *            the parameter names
+	 * @return this
+	 */
+	public CsvLoader columns(String... names) {
+		this.columns = names;
+		return this;
+	}
+
+	/**
+	 * Specifies the class the values of the column are converted to. By
+	 * default, the values are passed as String.<br>
+	 * The supported classes are the wrappers of the primitives, BigDecimal,
+	 * BigInteger, java.sql.Date, Time, Timestamp and String.
+	 *
+	 * @param name
+	 *            the parameter name of the column
+	 * @param clazz
+	 *            the class
+	 * @return this
+	 * @throws UnsupportedTypeException
+	 *             the class is not supported
+	 */
+	public CsvLoader type(String name, Class<?> clazz) {
+		convert(clazz, null);
+		types.put(name, clazz);
+		return this;
+	}
+
+	/**
+	 * @param rows
+	 *            the maximum number of the rows inserted by a statement, and
+	 *            the size of the chunk
+	 * @return this
+	 * @see SQLExecutor#bulkInsert(Iterable, int)
+	 */
+	public CsvLoader rowsPerStatement(int rows) {
+		if (rows <= 0)
+			throw new IllegalArgumentException(
+					"The number of rows per statement must be positive: "
+							+ rows);
+		this.rowsPerStatement = rows;
+		return this;
+	}
+
+	/**
+	 * Specifies the number of the rows after which the connection is
+	 * committed. The commit happens at the end of the chunk. Zero means the
+	 * connection is not committed by this loader.
+	 *
+	 * @param rows
+	 *            the number of the rows
+	 * @return this
+	 */
+	public CsvLoader commitInterval(int rows) {
+		this.commitInterval = rows;
+		return this;
+	}
+
+	/**
+	 * Specifies the file the rejected records are written into.<br>
+	 * The chunk the database rejects is rolled back to the savepoint set
+	 * before it, and its rows are retried one by one. So the connection is
+	 * switched to manual commit during the load if it is in auto-commit mode,
+	 * and the rows are committed when it is switched back at the end.
+	 *
+	 * @param rejectFile
+	 *            the file the rejected records are written into
+	 * @return this
+	 */
+	public CsvLoader rejectFile(Path rejectFile) {
+		this.rejectFile = rejectFile;
+		return this;
+	}
+
+	/**
+	 * Loads the CSV file.<br>
+	 * If the SQLManager is generated with the DataSource, the load is
+	 * performed in a transaction by {@link SQLManager#transaction(Function)}.
+	 *
+	 * @param file
+	 *            the CSV file
+	 * @return the result
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 */
+	public Result load(final Path file) {
+		if (manager.isBorrowingConnection()) {
+			return manager.transaction(new Function<Result>() {
+				@Override
+				public Result apply() {
+					return load(file);
+				}
+			});
+		}
+		try {
+			CsvReader reader = CsvReader.open(file, options);
+			try {
+				return load(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new IORuntimeException(file.toString(), e);
+		}
+	}
+
+	private Result load(final CsvReader reader) throws IOException {
+		if (!options.header() && columns == null)
+			throw new IllegalArgumentException(
+					"The columns must be specified for the file without the header.");
+		String[] header = options.header() ? reader.next() : null;
+		if (options.header() && header == null)
+			return new Result(0, 0);
+		final String[] names = columns != null ? columns : header;
+		final Rejects rejects = new Rejects(header);
+		final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>(
+				QUEUE_SIZE);
+		final AtomicBoolean stopped = new AtomicBoolean(false);
+		final AtomicBoolean inline = new AtomicBoolean(false);
+		final Thread caller = Thread.currentThread();
+		Connection con = null;
+		boolean autoCommit = false;
+		try {
+			if (rejectFile != null) {
+				// the failed chunk is rolled back to its savepoint.
+				con = manager.con();
+				autoCommit = con.getAutoCommit();
+				if (autoCommit)
+					con.setAutoCommit(false);
+			}
+			asyncExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					// the same-thread Executor would block on the full queue.
+					if (Thread.currentThread() == caller) {
+						inline.set(true);
+						return;
+					}
+					try {
+						Chunk chunk;
+						do {
+							chunk = readChunk(reader, names, rejects, stopped);
+							put(queue, chunk, stopped);
+						} while (chunk != END);
+					} catch (Throwable t) {
+						put(queue, new Chunk(t), stopped);
+					}
+				}
+			});
+			long loaded = 0;
+			long uncommitted = 0;
+			Chunk chunk;
+			while ((chunk = inline.get() ? readChunk(reader, names, rejects,
+					stopped) : queue.take()) != END) {
+				if (chunk.failure != null)
+					throw chunk.failure;
+				int count = insert(chunk, rejects);
+				loaded += count;
+				uncommitted += count;
+				if (commitInterval > 0 && uncommitted >= commitInterval) {
+					commit();
+					uncommitted = 0;
+				}
+			}
+			if (commitInterval > 0 && uncommitted > 0)
+				commit();
+			return new Result(loaded, rejects.count);
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (IOException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new WrapException(t);
+		} finally {
+			stopped.set(true);
+			queue.clear();
+			rejects.close();
+			if (autoCommit)
+				restoreAutoCommit(con);
+		}
+	}
+
+	private Chunk readChunk(CsvReader reader, String[] names, Rejects rejects,
+			AtomicBoolean stopped) throws IOException {
+		Chunk chunk = new Chunk(null);
+		String[] values;
+		while (chunk.rows.size() < rowsPerStatement && !stopped.get()
+				&& (values = reader.next()) != null) {
+			ParamMap row = toRow(names, values, reader, rejects);
+			if (row == null)
+				continue;
+			chunk.rows.add(row);
+			chunk.records.add(reader.record());
+		}
+		return chunk.rows.isEmpty() ? END : chunk;
+	}
+
+	private ParamMap toRow(String[] names, String[] values, CsvReader reader,
+			Rejects rejects) throws IOException {
+		if (values.length != names.length) {
+			rejects.write(reader.record());
+			return null;
+		}
+		ParamMap row = new ParamMap(names.length * 4 / 3 + 1);
+		try {
+			for (int i = 0; i < names.length; i++) {
+				row.put(names[i], convert(types.get(names[i]), values[i]));
+			}
+		} catch (IllegalArgumentException e) {
+			// NumberFormatException is also caught.
+			rejects.write(reader.record());
+			return null;
+		}
+		return row;
+	}
+
+	private int insert(Chunk chunk, Rejects rejects) throws IOException {
+		if (rejectFile == null)
+			return executor.bulkInsert(chunk.rows, rowsPerStatement);
+		// the chunk may be inserted by several statements, so the succeeded
+		// ones are rolled back before the rows are retried.
+		Connection con = manager.con();
+		Savepoint savepoint = setSavepoint(con);
+		try {
+			int count = executor.bulkInsert(chunk.rows, rowsPerStatement);
+			releaseSavepoint(con, savepoint);
+			return count;
+		} catch (SQLRuntimeException e) {
+			rollback(con, savepoint);
+		}
+		// finds the rows rejected one by one.
+		int count = 0;
+		for (int i = 0; i < chunk.rows.size(); i++) {
+			savepoint = setSavepoint(con);
+			try {
+				count += executor.update(chunk.rows.get(i));
+				releaseSavepoint(con, savepoint);
+			} catch (SQLRuntimeException ignore) {
+				rollback(con, savepoint);
+				rejects.write(chunk.records.get(i));
+			}
+		}
+		return count;
+	}
+
+	private static Savepoint setSavepoint(Connection con) {
+		try {
+			return con.setSavepoint();
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+
+	private static void releaseSavepoint(Connection con, Savepoint savepoint) {
+		try {
+			con.releaseSavepoint(savepoint);
+		} catch (SQLException ignore) {
+			// some drivers release the savepoint only on commit.
+		}
+	}
+
+	private static void rollback(Connection con, Savepoint savepoint) {
+		try {
+			con.rollback(savepoint);
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+
+	private static void restoreAutoCommit(Connection con) {
+		try {
+			// commits the rows loaded.
+			con.setAutoCommit(true);
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+
+	private void commit() {
+		try {
+			Connection con = manager.con();
+			if (!con.getAutoCommit())
+				con.commit();
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+
+	private static void put(BlockingQueue<Chunk> queue, Chunk chunk,
+			AtomicBoolean stopped) {
+		try {
+			// gives up when the inserting thread stops taking the chunks.
+			while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+				if (stopped.get())
+					return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Object convert(Class<?> clazz, String value) {
+		if (clazz == null || clazz == String.class)
+			return value;
+		boolean isNull = value == null;
+		if (!isNull)
+			value = value.trim();
+		if (clazz == Integer.class || clazz == Integer.TYPE)
+			return isNull ? null : Integer.valueOf(value);
+		if (clazz == Long.class || clazz == Long.TYPE)
+			return isNull ? null : Long.valueOf(value);
+		if (clazz == Short.class || clazz == Short.TYPE)
+			return isNull ? null : Short.valueOf(value);
+		if (clazz == Byte.class || clazz == Byte.TYPE)
+			return isNull ? null : Byte.valueOf(value);
+		if (clazz == Double.class || clazz == Double.TYPE)
+			return isNull ? null : Double.valueOf(value);
+		if (clazz == Float.class || clazz == Float.TYPE)
+			return isNull ? null : Float.valueOf(value);
+		if (clazz == Boolean.class || clazz == Boolean.TYPE)
+			return isNull ? null : Boolean.valueOf(value);
+		if (clazz == BigDecimal.class)
+			return isNull ? null : new BigDecimal(value);
+		if (clazz == BigInteger.class)
+			return isNull ? null : new BigInteger(value);
+		if (clazz == java.sql.Date.class)
+			return isNull ? null : java.sql.Date.valueOf(value);
+		if (clazz == Time.class)
+			return isNull ? null : Time.valueOf(value);
+		if (clazz == Timestamp.class)
+			return isNull ? null : Timestamp.valueOf(value);
+		throw new UnsupportedTypeException("The type(" + clazz.getName()
+				+ ") is not supported by CsvLoader.");
+	}
+
+	/**
+	 * The writer of the reject file, shared by the parsing thread and the
+	 * inserting thread.
+	 */
+	private class Rejects {
+
+		private final String[] header;
+		private Writer writer;
+		private long count = 0;
+
+		Rejects(String[] header) {
+			this.header = header;
+		}
+
+		synchronized void write(String record) throws IOException {
+			if (rejectFile == null)
+				throw new IOException("The record is rejected: " + record);
+			if (writer == null) {
+				writer = Files.newBufferedWriter(rejectFile, options.charset());
+				if (header != null) {
+					for (int i = 0; i < header.length; i++) {
+						if (i != 0)
+							writer.write(options.delimiter());
+						writer.write(options.quoteChar());
+						writer.write(header[i].replace(String.valueOf(options
+								.quoteChar()), String.valueOf(options
+								.quoteChar()) + options.quoteChar()));
+						writer.write(options.quoteChar());
+					}
+					writer.write(options.lineSeparator());
+				}
+			}
+			writer.write(record);
+			writer.write(options.lineSeparator());
+			count++;
+		}
+
+		synchronized void close() throws IOException {
+			if (writer != null)
+				writer.close();
+		}
+	}
+}
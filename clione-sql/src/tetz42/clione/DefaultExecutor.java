@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The holder of the Executor used when no Executor is specified.<br>
+ * It starts a virtual thread per task if the JVM supports virtual threads.
+ * Otherwise, it runs the tasks on a cached pool of daemon threads.
+ *
+ * @author tetz
+ */
+final class DefaultExecutor {
+
+	private static final Executor INSTANCE = newExecutor();
+
+	static Executor get() {
+		return INSTANCE;
+	}
+
+	private static Executor newExecutor() {
+		try {
+			return (Executor) Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception ignore) {
+			// virtual threads are not available.
+		}
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "clione-sql-"
+						+ count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private DefaultExecutor() {
+	}
+}
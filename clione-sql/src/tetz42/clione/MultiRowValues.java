@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione;
+
+/**
+ * The insert statement divided at its VALUES tuple, to replicate the tuple
+ * for a multi-row insert.<br>
+ * For example, the statement below:
+ *
+ * <pre>
+ * INSERT INTO PEOPLE (NAME, AGE) VALUES (?, ?)
+ * </pre>
+ *
+ * is expanded for 3 rows to:
+ *
+ * <pre>
+ * INSERT INTO PEOPLE (NAME, AGE) VALUES (?, ?), (?, ?), (?, ?)
+ * </pre>
+ *
+ * @author tetz
+ */
+class MultiRowValues {
+
+	private static final String VALUES = "VALUES";
+
+	/**
+	 * Divides the insert statement at its VALUES tuple.
+	 *
+	 * @param sql
+	 *            the single-row insert statement
+	 * @return the instance divided, or null if the statement has no VALUES
+	 *         tuple
+	 */
+	static MultiRowValues parse(String sql) {
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"') {
+				i = skipQuoted(sql, i);
+			} else if (isKeyword(sql, i)) {
+				int begin = skipSpaces(sql, i + VALUES.length());
+				if (begin >= sql.length() || sql.charAt(begin) != '(')
+					return null;
+				int end = closingParen(sql, begin);
+				if (end == -1)
+					return null;
+				return new MultiRowValues(sql.substring(0, begin), sql
+						.substring(begin, end + 1), sql.substring(end + 1));
+			} else {
+				i++;
+			}
+		}
+		return null;
+	}
+
+	final String head;
+	final String tuple;
+	final String tail;
+
+	private MultiRowValues(String head, String tuple, String tail) {
+		this.head = head;
+		this.tuple = tuple;
+		this.tail = tail;
+	}
+
+	/**
+	 * @return the number of the parameter markers in the VALUES tuple
+	 */
+	int tupleParamCount() {
+		int count = 0;
+		int i = 0;
+		while (i < tuple.length()) {
+			char c = tuple.charAt(i);
+			if (c == '\'' || c == '"') {
+				i = skipQuoted(tuple, i);
+				continue;
+			}
+			if (c == '?')
+				count++;
+			i++;
+		}
+		return count;
+	}
+
+	/**
+	 * @param rows
+	 *            the number of rows
+	 * @return the insert statement which inserts the specified number of rows
+	 */
+	String toSql(int rows) {
+		StringBuilder sb = new StringBuilder(head.length() + tail.length()
+				+ (tuple.length() + 2) * rows);
+		sb.append(head).append(tuple);
+		for (int i = 1; i < rows; i++) {
+			sb.append(", ").append(tuple);
+		}
+		return sb.append(tail).toString();
+	}
+
+	private static boolean isKeyword(String sql, int i) {
+		if (!sql.regionMatches(true, i, VALUES, 0, VALUES.length()))
+			return false;
+		if (i > 0 && Character.isJavaIdentifierPart(sql.charAt(i - 1)))
+			return false;
+		int next = i + VALUES.length();
+		return next >= sql.length()
+				|| !Character.isJavaIdentifierPart(sql.charAt(next));
+	}
+
+	private static int skipSpaces(String sql, int i) {
+		while (i < sql.length() && Character.isWhitespace(sql.charAt(i)))
+			i++;
+		return i;
+	}
+
+	private static int skipQuoted(String sql, int i) {
+		char quote = sql.charAt(i);
+		for (i++; i < sql.length(); i++) {
+			if (sql.charAt(i) != quote)
+				continue;
+			if (i + 1 < sql.length() && sql.charAt(i + 1) == quote)
+				i++; // escaped quote
+			else
+				return i + 1;
+		}
+		return i;
+	}
+
+	private static int closingParen(String sql, int begin) {
+		int depth = 0;
+		int i = begin;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"') {
+				i = skipQuoted(sql, i);
+				continue;
+			}
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (--depth == 0)
+					return i;
+			}
+			i++;
+		}
+		return -1;
+	}
+}
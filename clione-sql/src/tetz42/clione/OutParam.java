@@ -0,0 +1,240 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+/**
+ * The OUT or INOUT parameter of the stored procedure called by
+ * {@link SQLExecutor#call(java.util.Map)}.<br>
+ * The parameter is registered by CallableStatement#registerOutParameter(int,
+ * int) with the SQL type of its class, and holds the value after the call.
+ * For example:
+ *
+ * <pre>
+ * OutParam&lt;Integer&gt; total = OutParam.out(Integer.class);
+ * CallResult result = sqlManager.useSQL(
+ * 		&quot;{call SALES_REPORT(/* month *&#47;'2012-01', /* total *&#47;0)}&quot;).call(
+ * 		params(&quot;month&quot;, &quot;2012-04&quot;).$(&quot;total&quot;, total));
+ * try {
+ * 	for (Sale sale : result.next(Sale.class))
+ * 		System.out.println(sale);
+ * } finally {
+ * 	result.close();
+ * }
+ * System.out.println(total.get());
+ * </pre>
+ *
+ * @param <T>
+ *            the class of the value
+ * @see CallResult
+ * @author tetz
+ */
+public final class OutParam<T> {
+
+	/**
+	 * @param <T>
+	 * @param clazz
+	 *            the class of the value
+	 * @return the OUT parameter
+	 */
+	public static <T> OutParam<T> out(Class<T> clazz) {
+		return new OutParam<T>(clazz, sqlTypeOf(clazz), null, false);
+	}
+
+	/**
+	 * @param <T>
+	 * @param clazz
+	 *            the class of the value
+	 * @param sqlType
+	 *            the SQL type defined in java.sql.Types
+	 * @return the OUT parameter
+	 */
+	public static <T> OutParam<T> out(Class<T> clazz, int sqlType) {
+		return new OutParam<T>(clazz, sqlType, null, false);
+	}
+
+	/**
+	 * @param <T>
+	 * @param clazz
+	 *            the class of the value
+	 * @param value
+	 *            the value passed into the procedure
+	 * @return the INOUT parameter
+	 */
+	public static <T> OutParam<T> inOut(Class<T> clazz, T value) {
+		return new OutParam<T>(clazz, sqlTypeOf(clazz), value, true);
+	}
+
+	/**
+	 * The cursor returned by the procedure, like REF CURSOR of Oracle. The
+	 * cursor is mapped by {@link CallResult#cursor(OutParam, Class)}.<br>
+	 * The parameter is registered as Types.REF_CURSOR of JDBC 4.2, so the
+	 * driver must support JDBC 4.2, like ojdbc8 or later. For older drivers,
+	 * use {@link #cursor(int)} with the vendor type, e.g.
+	 * OracleTypes.CURSOR of ojdbc6.
+	 *
+	 * @return the OUT parameter
+	 */
+	public static OutParam<ResultSet> cursor() {
+		return cursor(Types.REF_CURSOR);
+	}
+
+	/**
+	 * The cursor returned by the procedure, registered with the SQL type of
+	 * the driver.
+	 *
+	 * @param sqlType
+	 *            the SQL type of the cursor, e.g. OracleTypes.CURSOR
+	 * @return the OUT parameter
+	 * @see #cursor()
+	 */
+	public static OutParam<ResultSet> cursor(int sqlType) {
+		return new OutParam<ResultSet>(ResultSet.class, sqlType, null, false);
+	}
+
+	private final Class<T> clazz;
+	private final int sqlType;
+	private final boolean isInOut;
+	private T value;
+
+	private OutParam(Class<T> clazz, int sqlType, T value, boolean isInOut) {
+		this.clazz = clazz;
+		this.sqlType = sqlType;
+		this.value = value;
+		this.isInOut = isInOut;
+	}
+
+	/**
+	 * @return the value returned by the procedure, or the value passed if the
+	 *         procedure is not called yet
+	 */
+	public T get() {
+		return value;
+	}
+
+	/**
+	 * @return the SQL type registered
+	 */
+	public int getSqlType() {
+		return sqlType;
+	}
+
+	/**
+	 * @return true if the value is also passed into the procedure
+	 */
+	public boolean isInOut() {
+		return isInOut;
+	}
+
+	@Override
+	public String toString() {
+		return (isInOut ? "INOUT(" + value + ")" : "OUT") + "<"
+				+ clazz.getSimpleName() + ">";
+	}
+
+	/**
+	 * Reads the value by the getter of its class. CallableStatement#getObject(
+	 * int, Class) is not used, because JDBC 4.0 drivers do not implement it.
+	 */
+	void read(CallableStatement cs, int index) throws SQLException {
+		Object obj = getValue(cs, index);
+		this.value = clazz.cast(obj != null && cs.wasNull() ? null : obj);
+	}
+
+	private Object getValue(CallableStatement cs, int index)
+			throws SQLException {
+		if (clazz == String.class)
+			return cs.getString(index);
+		if (clazz == Integer.class)
+			return cs.getInt(index);
+		if (clazz == Long.class)
+			return cs.getLong(index);
+		if (clazz == Short.class)
+			return cs.getShort(index);
+		if (clazz == Byte.class)
+			return cs.getByte(index);
+		if (clazz == Double.class)
+			return cs.getDouble(index);
+		if (clazz == Float.class)
+			return cs.getFloat(index);
+		if (clazz == Boolean.class)
+			return cs.getBoolean(index);
+		if (clazz == BigDecimal.class)
+			return cs.getBigDecimal(index);
+		if (clazz == BigInteger.class) {
+			BigDecimal decimal = cs.getBigDecimal(index);
+			return decimal == null ? null : decimal.toBigInteger();
+		}
+		if (clazz == java.sql.Date.class)
+			return cs.getDate(index);
+		if (clazz == Time.class)
+			return cs.getTime(index);
+		if (clazz == Timestamp.class || clazz == Date.class)
+			return cs.getTimestamp(index);
+		if (clazz == byte[].class)
+			return cs.getBytes(index);
+		if (clazz == Blob.class)
+			return cs.getBlob(index);
+		if (clazz == Clob.class)
+			return cs.getClob(index);
+		return cs.getObject(index);
+	}
+
+	private static int sqlTypeOf(Class<?> clazz) {
+		if (clazz == String.class)
+			return Types.VARCHAR;
+		if (clazz == Integer.class)
+			return Types.INTEGER;
+		if (clazz == Long.class)
+			return Types.BIGINT;
+		if (clazz == Short.class)
+			return Types.SMALLINT;
+		if (clazz == Byte.class)
+			return Types.TINYINT;
+		if (clazz == Double.class)
+			return Types.DOUBLE;
+		if (clazz == Float.class)
+			return Types.REAL;
+		if (clazz == Boolean.class)
+			return Types.BOOLEAN;
+		if (clazz == BigDecimal.class || clazz == BigInteger.class)
+			return Types.DECIMAL;
+		if (clazz == java.sql.Date.class)
+			return Types.DATE;
+		if (clazz == Time.class)
+			return Types.TIME;
+		if (clazz == Timestamp.class || clazz == Date.class)
+			return Types.TIMESTAMP;
+		if (clazz == byte[].class)
+			return Types.VARBINARY;
+		if (clazz == Blob.class)
+			return Types.BLOB;
+		if (clazz == Clob.class)
+			return Types.CLOB;
+		return Types.OTHER;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The select query to be performed by
+ * {@link SQLManager#parallel(Query...)}.<br>
+ * The instance of this class is generated by
+ * {@link SQLExecutor#query(Class, Map)}, and holds the result and the elapsed
+ * time after it is performed.
+ *
+ * @param <T>
+ *            the class of the result instances
+ * @see SQLManager#parallel(Query...)
+ * @author tetz
+ */
+public class Query<T> {
+
+	private final SQLExecutor executor;
+	private final Class<T> entityClass;
+	private final Map<String, Object> paramMap;
+	private List<T> result;
+	private long elapsedNanos = -1;
+
+	Query(SQLExecutor executor, Class<T> entityClass,
+			Map<String, Object> paramMap) {
+		this.executor = executor;
+		this.entityClass = entityClass;
+		this.paramMap = paramMap;
+	}
+
+	/**
+	 * Get the result of this query.
+	 *
+	 * @return the result instances, or null if this query has not been
+	 *         performed successfully
+	 */
+	public List<T> getResult() {
+		return result;
+	}
+
+	/**
+	 * Get the time elapsed to generate the SQL, perform it and convert the
+	 * result.
+	 *
+	 * @return the elapsed time in milliseconds, or -1 if this query has not
+	 *         been performed
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos < 0 ? -1 : TimeUnit.NANOSECONDS
+				.toMillis(elapsedNanos);
+	}
+
+	/**
+	 * Get the time elapsed to generate the SQL, perform it and convert the
+	 * result.
+	 *
+	 * @return the elapsed time in nanoseconds, or -1 if this query has not
+	 *         been performed
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Get the information of the SQL performed by this query.
+	 *
+	 * @return the SQL information
+	 * @see SQLExecutor#getSQLInfo()
+	 */
+	public String getSQLInfo() {
+		return executor.getSQLInfo();
+	}
+
+	void perform() {
+		long start = System.nanoTime();
+		try {
+			this.result = executor.findAll(entityClass, paramMap);
+		} finally {
+			this.elapsedNanos = System.nanoTime() - start;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione;
+
+import static tetz42.clione.util.ClioneUtil.*;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import tetz42.clione.util.ParamMap;
+
+/**
+ * The Spliterator which reads the key range [lo, hi) of the SQL as sub-ranges.<br>
+ * The range is split on the partition boundaries, and each sub-range is
+ * selected by its own statement on its own connection, with the parameters
+ * 'lo' and 'hi' set to the bounds of the sub-range. Thus the sub-ranges
+ * traversed by the parallel Stream are read from the database in parallel.
+ *
+ * @param <T>
+ *            the class of the result instances
+ * @see SQLExecutor#partitionedStream(Class, Map, long, long, int)
+ * @author tetz
+ */
+class RangeSpliterator<T> implements Spliterator<T> {
+
+	static final String LO = "lo";
+	static final String HI = "hi";
+
+	private final SQLExecutor template;
+	private final Class<T> entityClass;
+	private final Map<String, Object> paramMap;
+	private final long partitionSize;
+	private final Set<SQLExecutor> opened;
+	private long lo;
+	private final long hi;
+
+	private SQLExecutor executor;
+	private Iterator<T> ite;
+
+	/**
+	 * Returns the width of the sub-ranges dividing [lo, hi) into the
+	 * partitions.<br>
+	 * The widths are unsigned, so that a range wider than Long.MAX_VALUE,
+	 * like [Long.MIN_VALUE, Long.MAX_VALUE), does not overflow.
+	 */
+	static long partitionSize(long lo, long hi, long partitions) {
+		return ceilDiv(hi - lo, partitions);
+	}
+
+	private static long ceilDiv(long unsignedWidth, long divisor) {
+		return Long.divideUnsigned(unsignedWidth, divisor)
+				+ (Long.remainderUnsigned(unsignedWidth, divisor) == 0 ? 0 : 1);
+	}
+
+	RangeSpliterator(SQLExecutor template, Class<T> entityClass,
+			Map<String, Object> paramMap, long lo, long hi,
+			long partitionSize, Set<SQLExecutor> opened) {
+		this.template = template;
+		this.entityClass = entityClass;
+		this.paramMap = paramMap;
+		this.lo = lo;
+		this.hi = hi;
+		this.partitionSize = partitionSize;
+		this.opened = opened;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (ite == null) {
+			if (lo >= hi)
+				return false;
+			open();
+		}
+		if (ite.hasNext()) {
+			action.accept(ite.next());
+			return true;
+		}
+		close();
+		return false;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		while (tryAdvance(action))
+			;
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		if (ite != null)
+			return null;
+		long partitions = ceilDiv(hi - lo, partitionSize);
+		if (partitions < 2)
+			return null;
+		// the offset is less than the width, so the sum stays in [lo, hi).
+		long mid = lo + partitions / 2 * partitionSize;
+		RangeSpliterator<T> prefix = new RangeSpliterator<T>(template,
+				entityClass, paramMap, lo, mid, partitionSize, opened);
+		this.lo = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		if (ite != null || lo >= hi || hi - lo < 0)
+			return Long.MAX_VALUE;
+		return hi - lo;
+	}
+
+	@Override
+	public int characteristics() {
+		if (entityClass == null || !isJDBCGetterType(entityClass))
+			return ORDERED | NONNULL;
+		return ORDERED;
+	}
+
+	private void open() {
+		ParamMap params = new ParamMap();
+		if (paramMap != null)
+			params.putAll(paramMap);
+		params.$(LO, lo).$(HI, hi);
+		executor = template.copy();
+		opened.add(executor);
+		ite = executor.each(entityClass, params).iterator();
+	}
+
+	private void close() {
+		lo = hi;
+		opened.remove(executor);
+		executor.closeStatement();
+	}
+}
@@ -21,21 +21,56 @@ import static tetz42.clione.lang.ContextUtil.*;
 import static tetz42.clione.util.ClioneUtil.*;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.CallableStatement;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import tetz42.clione.SQLManager.SQLSet;
+import tetz42.clione.common.Function;
 import tetz42.clione.common.Using;
+import tetz42.clione.common.exception.IORuntimeException;
 import tetz42.clione.common.exception.SQLRuntimeException;
+import tetz42.clione.exception.ResultLimitExceededException;
 import tetz42.clione.gen.SQLGenerator;
+import tetz42.clione.lang.NegativePredicate;
+import tetz42.clione.lang.dialect.Dialect;
 import tetz42.clione.node.SQLNode;
+import tetz42.clione.util.ClioneUtil;
+import tetz42.clione.util.ColumnIndex;
+import tetz42.clione.util.ColumnarTable;
+import tetz42.clione.util.CsvExporter;
+import tetz42.clione.util.CsvOptions;
+import tetz42.clione.util.Config;
+import tetz42.clione.util.LobSink;
 import tetz42.clione.util.ParamMap;
 import tetz42.clione.util.ResultMap;
+import tetz42.clione.util.SpillableList;
 
 /**
  *
@@ -43,17 +78,31 @@ import tetz42.clione.util.ResultMap;
  */
 public class SQLExecutor implements Closeable {
 
+	private static final int COUNT_SQL_CACHE_SIZE = 256;
+	private static final int LOB_BUFFER_SIZE = 64 * 1024;
+
 	private final SQLManager manager;
 	private final int hashValue;
 	final SQLGenerator sqlGenerator;
 	String resourceInfo = null;
 	private final String productName;
-	private Object[] negativeValues;
+	private NegativePredicate negative;
 
 	final SQLNode sqlNode;
 
-	PreparedStatement stmt;
+	volatile PreparedStatement stmt;
 	ResultSet rs;
+	private Connection borrowedCon;
+	private Executor asyncExecutor;
+	private int queryTimeout;
+	private String[] keyColumns;
+	private Integer maxRows;
+	private Long maxBytes;
+	private long pageOffset;
+	private Integer pageLimit;
+	private String[] seekColumns;
+	private Object[] lastKey;
+	private volatile boolean isCancelled = false;
 
 	SQLExecutor(SQLManager manager, SQLNode sqlNode) {
 		this.manager = manager;
@@ -62,7 +111,8 @@ public class SQLExecutor implements Closeable {
 		this.sqlGenerator = new SQLGenerator();
 		this.hashValue = (int) (Math.random() * Integer.MAX_VALUE);
 		this.productName = manager.getProductName();
-		this.negativeValues = manager.getNegativeValues();
+		this.negative = manager.getNegative();
+		this.asyncExecutor = manager.getAsyncExecutor();
 	}
 
 	/**
@@ -308,6 +358,427 @@ public class SQLExecutor implements Closeable {
 		}.invoke();
 	}
 
+	/**
+	 * Executes the given SQL select statement and returns the result as a
+	 * {@link ColumnarTable} instance.
+	 *
+	 * @return the column-oriented table of the result
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#findAllColumnar(Map)
+	 */
+	public ColumnarTable findAllColumnar() {
+		return findAllColumnar((Map<String, Object>) null);
+	}
+
+	/**
+	 * Executes the given SQL select statement and returns the result as a
+	 * {@link ColumnarTable} instance.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the column-oriented table of the result
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#findAllColumnar(Map)
+	 */
+	public ColumnarTable findAllColumnar(Object paramObj) {
+		return findAllColumnar(params(paramObj));
+	}
+
+	/**
+	 * Executes the given SQL select statement and returns the result as a
+	 * {@link ColumnarTable} instance.<br>
+	 * The values are held column by column in primitive arrays and dictionary
+	 * encoded strings, typed from the metadata of the result set. So the
+	 * result takes much less memory than the list of {@link ResultMap}, and
+	 * can be scanned and aggregated without an object per row.<br>
+	 * The number of the rows is limited by {@link #maxRows(int)}. The byte
+	 * limit is not applied, because the values are not held as objects.
+	 *
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the column-oriented table of the result
+	 * @throws SQLRuntimeException
+	 */
+	public ColumnarTable findAllColumnar(final Map<String, Object> paramMap) {
+		return new Using<ColumnarTable>(this) {
+
+			@Override
+			protected ColumnarTable execute() {
+				try {
+					stmt = genStmt(paramMap);
+					rs = stmt.executeQuery();
+					return ColumnarTable.read(rs, getMaxRows());
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				} catch (ResultLimitExceededException e) {
+					throw limitExceeded(e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Executes the given SQL select statement and writes the result into the
+	 * writer as CSV.
+	 *
+	 * @param writer
+	 *            the writer, which is flushed but not closed
+	 * @param options
+	 *            the format of CSV
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the number of the rows written
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 * @see SQLExecutor#exportCsv(Writer, CsvOptions, Map)
+	 */
+	public long exportCsv(Writer writer, CsvOptions options, Object paramObj) {
+		return exportCsv(writer, options, params(paramObj));
+	}
+
+	/**
+	 * Executes the given SQL select statement and writes the result into the
+	 * writer as CSV.<br>
+	 * The columns are read from the result set by the getters of their types
+	 * and written through the reused buffer, without the object of each row.
+	 *
+	 * @param writer
+	 *            the writer, which is flushed but not closed
+	 * @param options
+	 *            the format of CSV
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the number of the rows written
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 * @see CsvExporter#export(ResultSet, CsvOptions, Writer)
+	 */
+	public long exportCsv(final Writer writer, final CsvOptions options,
+			final Map<String, Object> paramMap) {
+		return new Using<Long>(this) {
+
+			@Override
+			protected Long execute() throws IOException {
+				try {
+					stmt = genStmt(paramMap);
+					rs = stmt.executeQuery();
+					return CsvExporter.export(rs, options, writer);
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Executes the given SQL select statement and writes the result into the
+	 * output stream as CSV.
+	 *
+	 * @param out
+	 *            the output stream, which is flushed but not closed
+	 * @param options
+	 *            the format of CSV
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the number of the rows written
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 * @see SQLExecutor#exportCsv(OutputStream, CsvOptions, Map)
+	 */
+	public long exportCsv(OutputStream out, CsvOptions options,
+			Object paramObj) {
+		return exportCsv(out, options, params(paramObj));
+	}
+
+	/**
+	 * Executes the given SQL select statement and writes the result into the
+	 * output stream as CSV, encoded by the charset of the options.
+	 *
+	 * @param out
+	 *            the output stream, which is flushed but not closed
+	 * @param options
+	 *            the format of CSV
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the number of the rows written
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 * @see SQLExecutor#exportCsv(WritableByteChannel, CsvOptions, Map)
+	 */
+	public long exportCsv(final OutputStream out, final CsvOptions options,
+			final Map<String, Object> paramMap) {
+		return new Using<Long>(this) {
+
+			@Override
+			protected Long execute() throws IOException {
+				try {
+					stmt = genStmt(paramMap);
+					rs = stmt.executeQuery();
+					return CsvExporter.export(rs, options, out);
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Executes the given SQL select statement and writes the result into the
+	 * channel as CSV.
+	 *
+	 * @param channel
+	 *            the channel, which is not closed
+	 * @param options
+	 *            the format of CSV
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the number of the rows written
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 * @see SQLExecutor#exportCsv(WritableByteChannel, CsvOptions, Map)
+	 */
+	public long exportCsv(WritableByteChannel channel, CsvOptions options,
+			Object paramObj) {
+		return exportCsv(channel, options, params(paramObj));
+	}
+
+	/**
+	 * Executes the given SQL select statement and writes the result into the
+	 * channel as CSV.<br>
+	 * The columns are read from the result set by the getters of their types
+	 * and appended to the reused line buffer, which is encoded by the charset
+	 * of the options into the reused byte buffer. So no object is generated
+	 * for each row.
+	 *
+	 * @param channel
+	 *            the channel, which is not closed
+	 * @param options
+	 *            the format of CSV
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the number of the rows written
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 * @see CsvExporter#export(ResultSet, CsvOptions, WritableByteChannel)
+	 */
+	public long exportCsv(final WritableByteChannel channel,
+			final CsvOptions options, final Map<String, Object> paramMap) {
+		return new Using<Long>(this) {
+
+			@Override
+			protected Long execute() throws IOException {
+				try {
+					stmt = genStmt(paramMap);
+					rs = stmt.executeQuery();
+					return CsvExporter.export(rs, options, channel);
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Counts the rows the given SQL select statement selects.
+	 *
+	 * @return the number of the rows
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#count(Map)
+	 */
+	public long count() {
+		return count((Map<String, Object>) null);
+	}
+
+	/**
+	 * Counts the rows the given SQL select statement selects.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the number of the rows
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#count(Map)
+	 */
+	public long count(Object paramObj) {
+		return count(params(paramObj));
+	}
+
+	/**
+	 * Counts the rows the given SQL select statement selects.<br>
+	 * The SQL generated is wrapped as 'SELECT COUNT(*) FROM (the SQL) T_' by
+	 * {@link Dialect#count(String)}, with its top-level ORDER BY clause
+	 * removed. So the same SQL file serves both the list and its count. The
+	 * page specified by {@link SQLExecutor#page(long, int)} or
+	 * {@link SQLExecutor#seek(String[], Object[], int)} is ignored. The count
+	 * statement is cached for each SQL generated.
+	 *
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the number of the rows
+	 * @throws SQLRuntimeException
+	 */
+	public long count(final Map<String, Object> paramMap) {
+		return new Using<Long>(this) {
+
+			@Override
+			protected Long execute() {
+				try {
+					String sql = generateCountSql(paramMap);
+					stmt = genStmt(sql, sqlGenerator.params, false);
+					rs = stmt.executeQuery();
+					return rs.next() ? rs.getLong(1) : 0L;
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#count(Object)} asynchronously.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the future of the number of the rows
+	 * @see SQLExecutor#countAsync(Map)
+	 */
+	public CompletableFuture<Long> countAsync(Object paramObj) {
+		return countAsync(params(paramObj));
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#count(Map)} asynchronously on the Executor
+	 * specified by {@link SQLExecutor#executeOn(Executor)}.<br>
+	 * The count is performed by a copy of this instance, so this instance can
+	 * select the page at the same time. The copy uses its own connection
+	 * borrowed from the DataSource.
+	 *
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the future of the number of the rows
+	 * @throws UnsupportedOperationException
+	 *             the SQLManager is not generated with DataSource
+	 */
+	public CompletableFuture<Long> countAsync(
+			final Map<String, Object> paramMap) {
+		final SQLExecutor counter = copy();
+		return counter.async(new Function<Long>() {
+			@Override
+			public Long apply() {
+				return counter.count(paramMap);
+			}
+		});
+	}
+
+	/**
+	 * Executes the given SQL select statement and returns the result as a
+	 * {@link SpillableList} instance.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @param byteBudget
+	 *            the estimated bytes of the rows held in the heap
+	 * @return the list of ResultMap instance
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#findAllSpilling(Map, long)
+	 */
+	public SpillableList findAllSpilling(Object paramObj, long byteBudget) {
+		return findAllSpilling(params(paramObj), byteBudget);
+	}
+
+	/**
+	 * Executes the given SQL select statement and returns the result as a
+	 * {@link SpillableList} instance.<br>
+	 * The rows are held in the heap up to the byte budget, and the rest rows
+	 * are spilled into a temporary file and read back on access. So a query
+	 * selecting unexpectedly many rows degrades to the file I/O instead of
+	 * exhausting the heap. The temporary file should be deleted by
+	 * {@link SpillableList#close()} after use.<br>
+	 * The number of the rows is limited by {@link #maxRows(int)}. The byte
+	 * limit is not applied, because the heap is bounded by the byte budget.
+	 *
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @param byteBudget
+	 *            the estimated bytes of the rows held in the heap
+	 * @return the list of ResultMap instance
+	 * @throws SQLRuntimeException
+	 */
+	public SpillableList findAllSpilling(final Map<String, Object> paramMap,
+			final long byteBudget) {
+		return new Using<SpillableList>(this) {
+
+			@Override
+			protected SpillableList execute() {
+				try {
+					stmt = genStmt(paramMap);
+					rs = stmt.executeQuery();
+					return SpillableList.read(rs, byteBudget, getMaxRows());
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				} catch (ResultLimitExceededException e) {
+					throw limitExceeded(e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Executes the given SQL select statement and writes the binary LOB
+	 * column of each row into the channel the sink opens.
+	 *
+	 * @param column
+	 *            the label of the LOB column
+	 * @param sink
+	 *            the destination of the LOB of each row
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the number of the LOBs written
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 * @see SQLExecutor#transferLob(String, LobSink, Map)
+	 */
+	public long transferLob(String column, LobSink sink, Object paramObj) {
+		return transferLob(column, sink, params(paramObj));
+	}
+
+	/**
+	 * Executes the given SQL select statement and writes the binary LOB
+	 * column of each row into the channel the sink opens.<br>
+	 * The LOB is read by ResultSet#getBinaryStream(int) and copied through a
+	 * reused buffer while the cursor is on the row, so the whole LOB is never
+	 * held in the heap. The other columns of the row, without the LOB column,
+	 * are passed to the sink as a ResultMap to name the destination. The rows
+	 * whose LOB is NULL are skipped without calling the sink.
+	 *
+	 * @param column
+	 *            the label of the LOB column
+	 * @param sink
+	 *            the destination of the LOB of each row
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the number of the LOBs written
+	 * @throws SQLRuntimeException
+	 * @throws IORuntimeException
+	 * @throws IllegalArgumentException
+	 *             the column is not found in the result set
+	 */
+	public long transferLob(final String column, final LobSink sink,
+			final Map<String, Object> paramMap) {
+		return new Using<Long>(this) {
+
+			@Override
+			protected Long execute() throws IOException {
+				try {
+					stmt = genStmt(paramMap);
+					rs = stmt.executeQuery();
+					return transfer(rs, column, sink);
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
 	/**
 	 * Executes the given SQL select statement and returns the iterator wrapper
 	 * of result set object. The {@link Iterator#next()} returns the instance of
@@ -512,53 +983,1030 @@ public class SQLExecutor implements Closeable {
 	}
 
 	/**
-	 * Executes the given SQL insert/update/delete statement.
+	 * Executes the given SQL select statement and returns the result as a
+	 * Stream.
 	 *
-	 * @return the count of updated records
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @return the Stream of the result
 	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#stream(Class, Map)
 	 */
-	public int update() {
-		return this.update((Map<String, Object>) null);
+	public <T> Stream<T> stream(Class<T> entityClass) {
+		return stream(entityClass, (Map<String, Object>) null);
 	}
 
 	/**
-	 * Executes the given SQL insert/update/delete statement.
+	 * Executes the given SQL select statement and returns the result as a
+	 * Stream.
 	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
 	 * @param paramObj
 	 *            the object to be inspected and mapped to SQL parameters
-	 * @return the count of updated records
+	 * @return the Stream of the result
 	 * @throws SQLRuntimeException
-	 * @see {@link ParamMap#object(Object)}
+	 * @see SQLExecutor#stream(Class, Map)
 	 */
-	public int update(Object paramObj) {
-		return this.update(params(paramObj));
+	public <T> Stream<T> stream(Class<T> entityClass, Object paramObj) {
+		return stream(entityClass, params(paramObj));
 	}
 
 	/**
-	 * Executes the given SQL insert/update/delete statement.
+	 * Executes the given SQL select statement and returns the result as a
+	 * sequential Stream.<br>
+	 * The rows are converted in the same way as
+	 * {@link SQLExecutor#each(Class, Map)}, only as far as the Stream
+	 * pipeline consumes them. Closing the Stream closes the result set and the
+	 * statement, so the cursor is released immediately even if a
+	 * short-circuiting operation like findFirst or limit leaves rows unread.
+	 * Therefore, use the Stream in try-with-resources like below:<br>
+	 *
+	 * <pre>
+	 * try (Stream&lt;Entity&gt; stream = sqlManager.useFile(&quot;sql/Select.sql&quot;)
+	 * 		.stream(Entity.class, params(&quot;type&quot;, &quot;A&quot;))) {
+	 * 	Entity first = stream.filter(condition).findFirst().orElse(null);
+	 * }
+	 * </pre>
 	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
 	 * @param paramMap
 	 *            the Map instance mapped to SQL parameters
-	 * @return the count of updated records
+	 * @return the Stream of the result
 	 * @throws SQLRuntimeException
+	 * @see SQLIterator#spliterator()
 	 */
-	public int update(final Map<String, Object> paramMap) {
-		return new Using<Integer>(this) {
-
-			@Override
-			protected Integer execute() {
-				try {
-					stmt = genStmt(paramMap);
-					return stmt.executeUpdate();
-				} catch (SQLException e) {
-					throw new SQLRuntimeException(getSQLInfo(), e);
-				}
-			}
-		}.invoke();
+	public <T> Stream<T> stream(Class<T> entityClass,
+			Map<String, Object> paramMap) {
+		SQLIterator<T> iterator = each(entityClass, paramMap);
+		return StreamSupport.stream(iterator.spliterator(), false).onClose(
+				new Runnable() {
+					@Override
+					public void run() {
+						closeStatement();
+					}
+				});
 	}
 
 	/**
-	 * Considers empty string as negative.<br>
+	 * Executes the given SQL select statement for each sub-range of the key
+	 * range and returns the results as a parallel Stream.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @param lo
+	 *            the lowest key of the range, inclusive
+	 * @param hi
+	 *            the highest key of the range, exclusive
+	 * @param partitions
+	 *            the number of sub-ranges
+	 * @return the Stream of the result
+	 * @see SQLExecutor#partitionedStream(Class, Map, long, long, int)
+	 */
+	public <T> Stream<T> partitionedStream(Class<T> entityClass,
+			Object paramObj, long lo, long hi, int partitions) {
+		return partitionedStream(entityClass, params(paramObj), lo, hi,
+				partitions);
+	}
+
+	/**
+	 * Executes the given SQL select statement for each sub-range of the key
+	 * range and returns the results as a parallel Stream.<br>
+	 * The SQL must select the rows in the range by the parameters 'lo' and
+	 * 'hi' like below:<br>
+	 *
+	 * <pre>
+	 * SELECT * FROM EMPLOYEES
+	 * WHERE ID &gt;= /* &#64;lo *&#47;0 AND ID &lt; /* &#64;hi *&#47;0
+	 * </pre>
+	 *
+	 * The range [lo, hi) is divided into the specified number of sub-ranges
+	 * of the same width. Each sub-range is selected by its own statement on a
+	 * connection borrowed from the data source, when the Stream pipeline
+	 * reaches it. Therefore, the parallel Stream reads the sub-ranges from the
+	 * database in parallel. The order of the Stream is the order of the
+	 * sub-ranges, and the order of the rows in each sub-range.<br>
+	 * Closing the Stream closes the statements of the sub-ranges not read to
+	 * the end, so use the Stream in try-with-resources.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @param lo
+	 *            the lowest key of the range, inclusive
+	 * @param hi
+	 *            the highest key of the range, exclusive
+	 * @param partitions
+	 *            the number of sub-ranges
+	 * @return the Stream of the result
+	 * @throws UnsupportedOperationException
+	 *             the SQLManager is not generated with DataSource
+	 * @throws IllegalArgumentException
+	 *             the range is empty or the number of sub-ranges is not
+	 *             positive
+	 */
+	public <T> Stream<T> partitionedStream(Class<T> entityClass,
+			Map<String, Object> paramMap, long lo, long hi, int partitions) {
+		if (!manager.hasDataSource())
+			throw new UnsupportedOperationException(
+					"Partitioned query is available on the SQLManager generated with DataSource only.");
+		if (lo >= hi || partitions <= 0)
+			throw new IllegalArgumentException("Invalid range: lo=" + lo
+					+ ", hi=" + hi + ", partitions=" + partitions);
+		long partitionSize = RangeSpliterator.partitionSize(lo, hi,
+				partitions);
+		final Set<SQLExecutor> opened = Collections
+				.newSetFromMap(new ConcurrentHashMap<SQLExecutor, Boolean>());
+		return StreamSupport.stream(
+				new RangeSpliterator<T>(this, entityClass, paramMap, lo, hi,
+						partitionSize, opened), true).onClose(new Runnable() {
+			@Override
+			public void run() {
+				new Using<Object>(opened) {
+					@Override
+					protected Object execute() throws Exception {
+						return null; // do nothing.
+					}
+				}.invoke();
+			}
+		});
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement.
+	 *
+	 * @return the count of updated records
+	 * @throws SQLRuntimeException
+	 */
+	public int update() {
+		return this.update((Map<String, Object>) null);
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the count of updated records
+	 * @throws SQLRuntimeException
+	 * @see {@link ParamMap#object(Object)}
+	 */
+	public int update(Object paramObj) {
+		return this.update(params(paramObj));
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement.
+	 *
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the count of updated records
+	 * @throws SQLRuntimeException
+	 */
+	public int update(final Map<String, Object> paramMap) {
+		return new Using<Integer>(this) {
+
+			@Override
+			protected Integer execute() {
+				try {
+					stmt = genStmt(paramMap);
+					return stmt.executeUpdate();
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement and returns the
+	 * keys generated. A null key is returned as 0.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the keys generated
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#updateAndGetKeys(Class, Map)
+	 */
+	public long[] updateAndGetKeys(Object paramObj) {
+		return updateAndGetKeys(params(paramObj));
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement and returns the
+	 * keys generated.<br>
+	 * A null key, for example of a row the driver could not report the key
+	 * of, is returned as 0. Use {@link #updateAndGetKeys(Class, Map)} with
+	 * Long.class to tell it apart.
+	 *
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the keys generated
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#updateAndGetKeys(Class, Map)
+	 */
+	public long[] updateAndGetKeys(Map<String, Object> paramMap) {
+		return toLongArray(updateAndGetKeys(Long.class, paramMap));
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement and returns the
+	 * keys generated.
+	 *
+	 * @param <K>
+	 * @param keyClass
+	 *            the class of key instance
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the keys generated
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#updateAndGetKeys(Class, Map)
+	 */
+	public <K> List<K> updateAndGetKeys(Class<K> keyClass, Object paramObj) {
+		return updateAndGetKeys(keyClass, params(paramObj));
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement and returns the
+	 * keys generated.<br>
+	 * The statement is prepared to return the columns specified by
+	 * {@link SQLExecutor#keyColumns(String...)}, or the keys the driver
+	 * generates if no column is specified. If the DBMS supports the RETURNING
+	 * clause, the statement is rewritten to return the key columns instead,
+	 * so even a multi-row insert returns all of its keys.<br>
+	 * The keys are converted in the same way as the result of
+	 * {@link SQLExecutor#findAll(Class, Map)}.
+	 *
+	 * @param <K>
+	 * @param keyClass
+	 *            the class of key instance
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the keys generated
+	 * @throws SQLRuntimeException
+	 * @see SQLIterator#iterator()
+	 */
+	public <K> List<K> updateAndGetKeys(final Class<K> keyClass,
+			final Map<String, Object> paramMap) {
+		return new Using<List<K>>(this) {
+
+			@Override
+			protected List<K> execute() {
+				try {
+					String sql = generateSql(paramMap);
+					String returning = getDialect(productName).returning(sql,
+							keyColumns);
+					List<K> keys = new ArrayList<K>();
+					if (returning != null) {
+						stmt = genStmt(returning, sqlGenerator.params, false);
+						addKeys(keyClass, stmt.executeQuery(), keys);
+					} else {
+						stmt = genStmt(sql, sqlGenerator.params, true);
+						stmt.executeUpdate();
+						addKeys(keyClass, stmt.getGeneratedKeys(), keys);
+					}
+					return keys;
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement for each of the
+	 * parameters as batches.<br>
+	 * The parameters generating the same SQL in succession are sent in a
+	 * batch, up to the size specified by 'BATCH_SIZE' in clione.properties.
+	 *
+	 * @param paramObjs
+	 *            the objects to be inspected and mapped to SQL parameters
+	 * @return the count of updated records for each of the parameters
+	 * @throws SQLRuntimeException
+	 */
+	public int[] updateBatch(final Iterable<?> paramObjs) {
+		return new Using<int[]>(this) {
+
+			@Override
+			protected int[] execute() {
+				try {
+					return batch(paramObjs, null, null);
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement for each of the
+	 * parameters as batches, and returns the keys generated. A null key is
+	 * returned as 0, as {@link #updateAndGetKeys(Map)} does.
+	 *
+	 * @param paramObjs
+	 *            the objects to be inspected and mapped to SQL parameters
+	 * @return the keys generated
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#updateBatchAndGetKeys(Class, Iterable)
+	 */
+	public long[] updateBatchAndGetKeys(Iterable<?> paramObjs) {
+		return toLongArray(updateBatchAndGetKeys(Long.class, paramObjs));
+	}
+
+	/**
+	 * Executes the given SQL insert/update/delete statement for each of the
+	 * parameters as batches, and returns the keys generated.<br>
+	 * The keys are returned in the same way as
+	 * {@link SQLExecutor#updateAndGetKeys(Class, Map)}, except that the
+	 * statement is never rewritten with the RETURNING clause. Whether the keys
+	 * of a batch are returned depends on the JDBC driver.
+	 *
+	 * @param <K>
+	 * @param keyClass
+	 *            the class of key instance
+	 * @param paramObjs
+	 *            the objects to be inspected and mapped to SQL parameters
+	 * @return the keys generated
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#updateBatch(Iterable)
+	 */
+	public <K> List<K> updateBatchAndGetKeys(final Class<K> keyClass,
+			final Iterable<?> paramObjs) {
+		return new Using<List<K>>(this) {
+
+			@Override
+			protected List<K> execute() {
+				try {
+					List<K> keys = new ArrayList<K>();
+					batch(paramObjs, keyClass, keys);
+					return keys;
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Inserts the rows for each of the parameters by multi-row insert
+	 * statements.
+	 *
+	 * @param paramObjs
+	 *            the objects to be inspected and mapped to SQL parameters
+	 * @return the count of inserted records
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#bulkInsert(Iterable, int)
+	 */
+	public int bulkInsert(Iterable<?> paramObjs) {
+		return bulkInsert(paramObjs, Config.get().BATCH_SIZE);
+	}
+
+	/**
+	 * Inserts the rows for each of the parameters by multi-row insert
+	 * statements.<br>
+	 * The SQL must be a single-row insert statement like below:<br>
+	 *
+	 * <pre>
+	 * INSERT INTO PEOPLE (NAME, AGE) VALUES (/* name *&#47;'John', /* age *&#47;20)
+	 * </pre>
+	 *
+	 * The VALUES tuple generated for each of the parameters is replicated into
+	 * one statement like 'VALUES (?, ?), (?, ?), ...', up to the specified
+	 * number of rows and the number of the parameters the DBMS accepts for a
+	 * statement. The parameters generating the same SQL in succession are
+	 * inserted together. If the statement has parameters out of the VALUES
+	 * tuple, like 'ON DUPLICATE KEY UPDATE AGE = ?', the rows are inserted one
+	 * by one with the same prepared statement.<br>
+	 * If the DBMS does not support multi-row insert, the rows are inserted by
+	 * {@link SQLExecutor#updateBatch(Iterable)} instead.
+	 *
+	 * @param paramObjs
+	 *            the objects to be inspected and mapped to SQL parameters
+	 * @param rowsPerStatement
+	 *            the maximum number of rows inserted by a statement
+	 * @return the count of inserted records
+	 * @throws SQLRuntimeException
+	 * @throws IllegalArgumentException
+	 *             the number of rows is not positive
+	 */
+	public int bulkInsert(final Iterable<?> paramObjs,
+			final int rowsPerStatement) {
+		if (rowsPerStatement <= 0)
+			throw new IllegalArgumentException(
+					"The number of rows per statement must be positive: "
+							+ rowsPerStatement);
+		return new Using<Integer>(this) {
+
+			@Override
+			protected Integer execute() {
+				try {
+					return bulk(paramObjs, rowsPerStatement);
+				} catch (SQLException e) {
+					throw new SQLRuntimeException(getSQLInfo(), e);
+				}
+			}
+		}.invoke();
+	}
+
+	/**
+	 * Calls the stored procedure without parameters.
+	 *
+	 * @return the results of the procedure
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#call(Map)
+	 */
+	public CallResult call() {
+		return call((Map<String, Object>) null);
+	}
+
+	/**
+	 * Calls the stored procedure.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the results of the procedure
+	 * @throws SQLRuntimeException
+	 * @see SQLExecutor#call(Map)
+	 */
+	public CallResult call(Object paramObj) {
+		return call(params(paramObj));
+	}
+
+	/**
+	 * Calls the stored procedure by CallableStatement, like below:<br>
+	 *
+	 * <pre>
+	 * {call SALES_REPORT(/* month *&#47;'2012-01', /* total *&#47;0)}
+	 * </pre>
+	 *
+	 * The {@link OutParam} instances in the parameters are registered as the
+	 * OUT or INOUT parameters. The result sets returned by the procedure are
+	 * traversed by {@link CallResult#next(Class)} in order.<br>
+	 * Note: The statement is NOT closed automatically. So you should call
+	 * {@link CallResult#close()} finally.
+	 *
+	 * @param paramMap
+	 *            the Map instance mapped to SQL parameters
+	 * @return the results of the procedure
+	 * @throws SQLRuntimeException
+	 * @see CallResult
+	 */
+	public CallResult call(Map<String, Object> paramMap) {
+		String sql = generateSql(paramMap);
+		manager.putExecutor(this);
+		try {
+			CallableStatement cs = con().prepareCall(sql);
+			stmt = cs;
+			if (queryTimeout > 0)
+				cs.setQueryTimeout(queryTimeout);
+			bind(cs, sqlGenerator.params);
+			boolean isResultSet = cs.execute();
+			return new CallResult(this, cs, sqlGenerator.params, isResultSet);
+		} catch (SQLException e) {
+			String sqlInfo = getSQLInfo();
+			closeStatement();
+			throw new SQLRuntimeException(sqlInfo, e);
+		}
+	}
+
+	/**
+	 * Generates the loader inserting the records of a CSV file by the given
+	 * SQL insert statement.<br>
+	 * The values of the records are mapped to the SQL parameters by the
+	 * header of the file, and inserted by
+	 * {@link SQLExecutor#bulkInsert(Iterable, int)}. The file is parsed on
+	 * the Executor specified by {@link SQLExecutor#executeOn(Executor)}.
+	 *
+	 * @return the loader
+	 * @see CsvLoader
+	 */
+	public CsvLoader csvLoader() {
+		return new CsvLoader(this, manager, asyncExecutor);
+	}
+
+	/**
+	 * Specifies the names of the key columns returned by
+	 * {@link SQLExecutor#updateAndGetKeys(Class, Map)} and
+	 * {@link SQLExecutor#updateBatchAndGetKeys(Class, Iterable)}.
+	 *
+	 * @param columnNames
+	 *            the names of the key columns
+	 * @return this
+	 */
+	public SQLExecutor keyColumns(String... columnNames) {
+		this.keyColumns = columnNames.length == 0 ? null : columnNames;
+		return this;
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#find(Object)} asynchronously.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the future of the result
+	 * @see SQLExecutor#findAsync(Class, Map)
+	 */
+	public CompletableFuture<ResultMap> findAsync(Object paramObj) {
+		return findAsync(ResultMap.class, params(paramObj));
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#find(Map)} asynchronously.
+	 *
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the future of the result
+	 * @see SQLExecutor#findAsync(Class, Map)
+	 */
+	public CompletableFuture<ResultMap> findAsync(Map<String, Object> paramMap) {
+		return findAsync(ResultMap.class, paramMap);
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#find(Class, Object)} asynchronously.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the future of the result
+	 * @see SQLExecutor#findAsync(Class, Map)
+	 */
+	public <T> CompletableFuture<T> findAsync(Class<T> entityClass,
+			Object paramObj) {
+		return findAsync(entityClass, params(paramObj));
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#find(Class, Map)} asynchronously on the
+	 * Executor specified by {@link SQLExecutor#executeOn(Executor)}.<br>
+	 * If the future is cancelled, the statement running is cancelled by
+	 * Statement#cancel(). The statement is executed by a copy of this
+	 * instance, so the asynchronous calls can run at the same time.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the future of the result
+	 * @throws UnsupportedOperationException
+	 *             the SQLManager is not generated with DataSource
+	 * @see SQLExecutor#queryTimeout(int)
+	 */
+	public <T> CompletableFuture<T> findAsync(final Class<T> entityClass,
+			final Map<String, Object> paramMap) {
+		final SQLExecutor executor = copy();
+		return executor.async(new Function<T>() {
+			@Override
+			public T apply() {
+				return executor.find(entityClass, paramMap);
+			}
+		});
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#findAll(Object)} asynchronously.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the future of the result
+	 * @see SQLExecutor#findAllAsync(Class, Map)
+	 */
+	public CompletableFuture<List<ResultMap>> findAllAsync(Object paramObj) {
+		return findAllAsync(ResultMap.class, params(paramObj));
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#findAll(Map)} asynchronously.
+	 *
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the future of the result
+	 * @see SQLExecutor#findAllAsync(Class, Map)
+	 */
+	public CompletableFuture<List<ResultMap>> findAllAsync(
+			Map<String, Object> paramMap) {
+		return findAllAsync(ResultMap.class, paramMap);
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#findAll(Class, Object)} asynchronously.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the future of the result
+	 * @see SQLExecutor#findAllAsync(Class, Map)
+	 */
+	public <T> CompletableFuture<List<T>> findAllAsync(Class<T> entityClass,
+			Object paramObj) {
+		return findAllAsync(entityClass, params(paramObj));
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#findAll(Class, Map)} asynchronously on the
+	 * Executor specified by {@link SQLExecutor#executeOn(Executor)}.<br>
+	 * If the future is cancelled, the statement running is cancelled by
+	 * Statement#cancel(). The statement is executed by a copy of this
+	 * instance, so the asynchronous calls can run at the same time.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the future of the result
+	 * @throws UnsupportedOperationException
+	 *             the SQLManager is not generated with DataSource
+	 * @see SQLExecutor#queryTimeout(int)
+	 */
+	public <T> CompletableFuture<List<T>> findAllAsync(
+			final Class<T> entityClass, final Map<String, Object> paramMap) {
+		final SQLExecutor executor = copy();
+		return executor.async(new Function<List<T>>() {
+			@Override
+			public List<T> apply() {
+				return executor.findAll(entityClass, paramMap);
+			}
+		});
+	}
+
+	/**
+	 * Iterates the result of {@link SQLExecutor#each(Class, Object)}
+	 * asynchronously.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @param action
+	 *            the action performed for each result instance
+	 * @return the future of the count of the result instances
+	 * @see SQLExecutor#eachAsync(Class, Map, Consumer)
+	 */
+	public <T> CompletableFuture<Integer> eachAsync(Class<T> entityClass,
+			Object paramObj, Consumer<? super T> action) {
+		return eachAsync(entityClass, params(paramObj), action);
+	}
+
+	/**
+	 * Iterates the result of {@link SQLExecutor#each(Class, Map)}
+	 * asynchronously on the Executor specified by
+	 * {@link SQLExecutor#executeOn(Executor)}.<br>
+	 * The action is performed on the thread of the Executor. If the future is
+	 * cancelled, the statement running is cancelled by Statement#cancel() and
+	 * the iteration stops. The statement and the result set are closed when
+	 * the iteration ends. The statement is executed by a copy of this
+	 * instance, so the asynchronous calls can run at the same time.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @param action
+	 *            the action performed for each result instance
+	 * @return the future of the count of the result instances
+	 * @throws UnsupportedOperationException
+	 *             the SQLManager is not generated with DataSource
+	 * @see SQLExecutor#queryTimeout(int)
+	 */
+	public <T> CompletableFuture<Integer> eachAsync(
+			final Class<T> entityClass, final Map<String, Object> paramMap,
+			final Consumer<? super T> action) {
+		final SQLExecutor executor = copy();
+		return executor.async(new Function<Integer>() {
+			@Override
+			public Integer apply() {
+				return new Using<Integer>(executor) {
+					@Override
+					protected Integer execute() {
+						int count = 0;
+						for (T entity : executor.each(entityClass, paramMap)) {
+							if (executor.isCancelled)
+								break;
+							action.accept(entity);
+							count++;
+						}
+						return count;
+					}
+				}.invoke();
+			}
+		});
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#update(Object)} asynchronously.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the future of the updated count
+	 * @see SQLExecutor#updateAsync(Map)
+	 */
+	public CompletableFuture<Integer> updateAsync(Object paramObj) {
+		return updateAsync(params(paramObj));
+	}
+
+	/**
+	 * Executes {@link SQLExecutor#update(Map)} asynchronously on the Executor
+	 * specified by {@link SQLExecutor#executeOn(Executor)}.<br>
+	 * If the future is cancelled, the statement running is cancelled by
+	 * Statement#cancel(). The statement is executed by a copy of this
+	 * instance, so the asynchronous calls can run at the same time.
+	 *
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the future of the updated count
+	 * @throws UnsupportedOperationException
+	 *             the SQLManager is not generated with DataSource
+	 * @see SQLExecutor#queryTimeout(int)
+	 */
+	public CompletableFuture<Integer> updateAsync(
+			final Map<String, Object> paramMap) {
+		final SQLExecutor executor = copy();
+		return executor.async(new Function<Integer>() {
+			@Override
+			public Integer apply() {
+				return executor.update(paramMap);
+			}
+		});
+	}
+
+	/**
+	 * Generates the Publisher of the result of
+	 * {@link SQLExecutor#each(Class, Object)}.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the Publisher
+	 * @see SQLExecutor#publisher(Class, Map)
+	 */
+	public <T> Flow.Publisher<T> publisher(Class<T> entityClass,
+			Object paramObj) {
+		return publisher(entityClass, params(paramObj));
+	}
+
+	/**
+	 * Generates the Publisher of the result of
+	 * {@link SQLExecutor#each(Class, Map)}.<br>
+	 * The result set is read on the Executor specified by
+	 * {@link SQLExecutor#executeOn(Executor)}, only as far as the subscriber
+	 * requests. The statement and the result set are closed when the result
+	 * set ends, an error occurs or the subscription is cancelled. The
+	 * Publisher accepts only one subscriber.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the Publisher
+	 */
+	public <T> Flow.Publisher<T> publisher(Class<T> entityClass,
+			Map<String, Object> paramMap) {
+		return new SQLPublisher<T>(this, entityClass, paramMap, asyncExecutor);
+	}
+
+	/**
+	 * Specifies the Executor to run the asynchronous methods of this
+	 * instance. By default, the Executor specified to the SQLManager is used.
+	 *
+	 * @param executor
+	 *            the Executor
+	 * @return this
+	 * @see SQLManager#executeOn(Executor)
+	 */
+	public SQLExecutor executeOn(Executor executor) {
+		this.asyncExecutor = executor;
+		return this;
+	}
+
+	/**
+	 * Specifies the number of seconds the statement generated by this
+	 * instance waits for its execution. The value is passed to
+	 * Statement#setQueryTimeout(int). Zero means there is no limit.
+	 *
+	 * @param seconds
+	 *            the query timeout in seconds
+	 * @return this
+	 */
+	public SQLExecutor queryTimeout(int seconds) {
+		this.queryTimeout = seconds;
+		return this;
+	}
+
+	/**
+	 * Specifies the maximum number of the rows the select statement of this
+	 * instance may return. If the result set has more rows, the iteration is
+	 * stopped, the statement is cancelled and closed, and
+	 * {@link ResultLimitExceededException} is thrown. Zero means there is no
+	 * limit. By default, MAX_ROWS of clione.properties is used.<br>
+	 * The limit applies to the find methods, the streams, the iterators and
+	 * {@link #findAllColumnar(Map)} and {@link #findAllSpilling(Map, long)}.
+	 * The exportCsv and transferLob methods are not limited, because they
+	 * write each row out instead of holding it.
+	 *
+	 * @param rows
+	 *            the maximum number of the rows
+	 * @return this
+	 * @see Config#MAX_ROWS
+	 */
+	public SQLExecutor maxRows(int rows) {
+		this.maxRows = rows;
+		return this;
+	}
+
+	/**
+	 * Specifies the maximum bytes of the rows the select statement of this
+	 * instance may return. The bytes are estimated from the values of the
+	 * rows read. If the estimation exceeds the limit, the iteration is
+	 * stopped, the statement is cancelled and closed, and
+	 * {@link ResultLimitExceededException} is thrown. Zero means there is no
+	 * limit. By default, MAX_BYTES of clione.properties is used.<br>
+	 * The limit applies to the find methods, the streams and the iterators.
+	 * {@link #findAllColumnar(Map)}, {@link #findAllSpilling(Map, long)},
+	 * the exportCsv and transferLob methods are not limited.
+	 *
+	 * @param bytes
+	 *            the maximum bytes of the rows
+	 * @return this
+	 * @see Config#MAX_BYTES
+	 * @see ClioneUtil#estimateSize(Object)
+	 */
+	public SQLExecutor maxBytes(long bytes) {
+		this.maxBytes = bytes;
+		return this;
+	}
+
+	/**
+	 * Specifies the page the select statement of this instance selects. The
+	 * SQL generated is rewritten by the {@link Dialect} of the DBMS, like
+	 * 'LIMIT ? OFFSET ?' for MySQL and PostgreSQL, 'OFFSET ? ROWS FETCH NEXT ?
+	 * ROWS ONLY' for SQL Server and the others, and ROWNUM for Oracle.<br>
+	 * Note: The DBMS still reads and skips the rows before the offset. For
+	 * the deep pages, consider {@link SQLExecutor#seek(String[], Object[], int)}.
+	 *
+	 * @param offset
+	 *            the number of the rows skipped
+	 * @param limit
+	 *            the maximum number of the rows selected
+	 * @return this
+	 * @see Dialect#page(SQLSet, long, int)
+	 */
+	public SQLExecutor page(long offset, int limit) {
+		if (offset < 0 || limit < 0)
+			throw new IllegalArgumentException("The offset(" + offset
+					+ ") and the limit(" + limit + ") must not be negative.");
+		this.pageOffset = offset;
+		this.pageLimit = limit;
+		this.seekColumns = null;
+		this.lastKey = null;
+		return this;
+	}
+
+	/**
+	 * Specifies the page the select statement of this instance selects, by
+	 * the key of the last row of the previous page.
+	 *
+	 * @param keyColumn
+	 *            the name of the key column
+	 * @param lastKey
+	 *            the key value of the last row of the previous page, or null
+	 *            for the first page
+	 * @param limit
+	 *            the maximum number of the rows selected
+	 * @return this
+	 * @see SQLExecutor#seek(String[], Object[], int)
+	 */
+	public SQLExecutor seek(String keyColumn, Object lastKey, int limit) {
+		return seek(new String[] { keyColumn },
+				lastKey == null ? null : new Object[] { lastKey }, limit);
+	}
+
+	/**
+	 * Specifies the page the select statement of this instance selects, by
+	 * the key of the last row of the previous page. The SQL generated is
+	 * wrapped as below:
+	 *
+	 * <pre>
+	 * SELECT * FROM (the SQL) T_ WHERE (K1, K2) &gt; (?, ?) ORDER BY K1, K2
+	 * </pre>
+	 *
+	 * and limited by the {@link Dialect} of the DBMS. Unlike
+	 * {@link SQLExecutor#page(long, int)}, no row is skipped, so every page
+	 * costs the same if the key columns are indexed. The rows are sorted in
+	 * the ascending order of the key columns, which must identify a row.
+	 *
+	 * @param keyColumns
+	 *            the names of the key columns
+	 * @param lastKey
+	 *            the key values of the last row of the previous page, or null
+	 *            for the first page
+	 * @param limit
+	 *            the maximum number of the rows selected
+	 * @return this
+	 * @see Dialect#seek(SQLSet, String[], Object[], int)
+	 */
+	public SQLExecutor seek(String[] keyColumns, Object[] lastKey, int limit) {
+		if (keyColumns.length == 0)
+			throw new IllegalArgumentException("No key column is specified.");
+		if (lastKey != null && lastKey.length != keyColumns.length)
+			throw new IllegalArgumentException("The number of the key values, "
+					+ lastKey.length + " does not match the key columns, "
+					+ keyColumns.length);
+		if (limit < 0)
+			throw new IllegalArgumentException("The limit(" + limit
+					+ ") must not be negative.");
+		this.pageOffset = 0;
+		this.pageLimit = limit;
+		this.seekColumns = keyColumns;
+		this.lastKey = lastKey;
+		return this;
+	}
+
+	/**
+	 * Generates the query to be performed by
+	 * {@link SQLManager#parallel(Query...)}. The result would be a list of
+	 * {@link ResultMap} instances.
+	 *
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the query
+	 * @see SQLExecutor#query(Class, Map)
+	 */
+	public Query<ResultMap> query(Object paramObj) {
+		return query(ResultMap.class, params(paramObj));
+	}
+
+	/**
+	 * Generates the query to be performed by
+	 * {@link SQLManager#parallel(Query...)}. The result would be a list of
+	 * {@link ResultMap} instances.
+	 *
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the query
+	 * @see SQLExecutor#query(Class, Map)
+	 */
+	public Query<ResultMap> query(Map<String, Object> paramMap) {
+		return query(ResultMap.class, paramMap);
+	}
+
+	/**
+	 * Generates the query to be performed by
+	 * {@link SQLManager#parallel(Query...)}.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramObj
+	 *            the object to be inspected and mapped to SQL parameters
+	 * @return the query
+	 * @see SQLExecutor#query(Class, Map)
+	 */
+	public <T> Query<T> query(Class<T> entityClass, Object paramObj) {
+		return query(entityClass, params(paramObj));
+	}
+
+	/**
+	 * Generates the query to be performed by
+	 * {@link SQLManager#parallel(Query...)}.<br>
+	 * The query is performed in the same way as
+	 * {@link SQLExecutor#findAll(Class, Map)}. Each query must be generated by
+	 * a different SQLExecutor instance.
+	 *
+	 * @param <T>
+	 * @param entityClass
+	 *            the class of result instance
+	 * @param paramMap
+	 *            the map instance to be mapped to SQL parameters
+	 * @return the query
+	 * @see SQLManager#parallel(Query...)
+	 */
+	public <T> Query<T> query(Class<T> entityClass,
+			Map<String, Object> paramMap) {
+		return new Query<T>(this, entityClass, paramMap);
+	}
+
+	/**
+	 * Considers empty string as negative.<br>
 	 *
 	 * @return this
 	 * @see SQLExecutor#asNegative(Object...)
@@ -582,7 +2030,7 @@ public class SQLExecutor implements Closeable {
 	 * @return this
 	 */
 	public SQLExecutor asNegative(Object... negativeValues) {
-		this.negativeValues = combine(this.negativeValues, negativeValues);
+		this.negative = this.negative.with(negativeValues);
 		return this;
 	}
 
@@ -591,17 +2039,24 @@ public class SQLExecutor implements Closeable {
 	 * instance.
 	 */
 	public void closeStatement() {
-		new Using<Object>(rs, stmt) {
-			@Override
-			protected Object execute() throws Exception {
-				return null; // do nothing.
-			}
+		try {
+			new Using<Object>(rs, stmt) {
+				@Override
+				protected Object execute() throws Exception {
+					return null; // do nothing.
+				}
 
-			@Override
-			protected void finallyCallback() {
-				manager.removeExecutor(SQLExecutor.this);
-			}
-		}.invoke();
+				@Override
+				protected void finallyCallback() {
+					manager.removeExecutor(SQLExecutor.this);
+				}
+			}.invoke();
+		} finally {
+			// cancel() must not reach the statement closed.
+			stmt = null;
+			rs = null;
+			returnConnection();
+		}
 	}
 
 	/**
@@ -615,6 +2070,50 @@ public class SQLExecutor implements Closeable {
 		closeStatement();
 	}
 
+	/**
+	 * @return the new SQLExecutor instance bound to the same SQL and settings
+	 *         as this
+	 */
+	SQLExecutor copy() {
+		SQLExecutor executor = new SQLExecutor(manager, sqlNode);
+		executor.resourceInfo = this.resourceInfo;
+		executor.negative = this.negative;
+		executor.asyncExecutor = this.asyncExecutor;
+		executor.queryTimeout = this.queryTimeout;
+		executor.keyColumns = this.keyColumns;
+		executor.maxRows = this.maxRows;
+		executor.maxBytes = this.maxBytes;
+		executor.pageOffset = this.pageOffset;
+		executor.pageLimit = this.pageLimit;
+		executor.seekColumns = this.seekColumns;
+		executor.lastKey = this.lastKey;
+		return executor;
+	}
+
+	int getMaxRows() {
+		return maxRows != null ? maxRows : Config.get().MAX_ROWS;
+	}
+
+	long getMaxBytes() {
+		return maxBytes != null ? maxBytes : Config.get().MAX_BYTES;
+	}
+
+	/**
+	 * Cancels the statement and adds the SQL information to the exception.
+	 * The statement is closed by the caller.
+	 */
+	private ResultLimitExceededException limitExceeded(
+			ResultLimitExceededException e) {
+		String sqlInfo = getSQLInfo();
+		try {
+			if (stmt != null)
+				stmt.cancel();
+		} catch (SQLException ignore) {
+		}
+		return new ResultLimitExceededException(mkStringByCRLF(
+				e.getMessage(), sqlInfo), e);
+	}
+
 	/**
 	 * Generates SQL.
 	 *
@@ -645,9 +2144,33 @@ public class SQLExecutor implements Closeable {
 	 */
 	public String generateSql(Map<String, Object> paramMap) {
 		setProductName(this.productName);
-		addNegative(negativeValues);
+		setNegative(negative);
+		try {
+			String sql = sqlGenerator.execute(paramMap, sqlNode);
+			if (sql != null && pageLimit != null)
+				sql = paginate(sql);
+			manager.setInfo(resourceInfo, sql, sqlGenerator.params);
+			return sql;
+		} finally {
+			clear();
+		}
+	}
+
+	private String generateCountSql(Map<String, Object> paramMap) {
+		setProductName(this.productName);
+		setNegative(negative);
 		try {
 			String sql = sqlGenerator.execute(paramMap, sqlNode);
+			if (sql != null) {
+				String countSql = sqlNode.countSqlCache.get(sql);
+				if (countSql == null) {
+					if (sqlNode.countSqlCache.size() >= COUNT_SQL_CACHE_SIZE)
+						sqlNode.countSqlCache.clear();
+					countSql = getDialect().count(sql);
+					sqlNode.countSqlCache.put(sql, countSql);
+				}
+				sql = sqlGenerator.sql = countSql;
+			}
 			manager.setInfo(resourceInfo, sql, sqlGenerator.params);
 			return sql;
 		} finally {
@@ -655,6 +2178,16 @@ public class SQLExecutor implements Closeable {
 		}
 	}
 
+	private String paginate(String sql) {
+		SQLSet sqlSet = new SQLSet(sql, sqlGenerator.params);
+		if (seekColumns != null)
+			sqlSet = getDialect().seek(sqlSet, seekColumns, lastKey, pageLimit);
+		else
+			sqlSet = getDialect().page(sqlSet, pageOffset, pageLimit);
+		sqlGenerator.params = sqlSet.params;
+		return sqlGenerator.sql = sqlSet.sql;
+	}
+
 	/**
 	 * Generates the {@link SQLSet}.
 	 *
@@ -723,16 +2256,8 @@ public class SQLExecutor implements Closeable {
 	 * @return {@link PreparedStatement} instance
 	 */
 	public PreparedStatement generateStatment(Map<String, Object> paramMap) {
-		try {
-			stmt = manager.con().prepareStatement(generateSql(paramMap));
-			int i = 1;
-			for (Object param : this.sqlGenerator.params) {
-				setJDBCData(stmt, param, i++);
-			}
-			return stmt;
-		} catch (SQLException e) {
-			throw new SQLRuntimeException(getSQLInfo(), e);
-		}
+		String sql = generateSql(paramMap);
+		return prepare(sql, sqlGenerator.params, false);
 	}
 
 	@Override
@@ -748,7 +2273,16 @@ public class SQLExecutor implements Closeable {
 		return this.sqlGenerator.params;
 	}
 
-	String getSQLInfo() {
+	/**
+	 * Get the information of the SQL generated by this SQLExecutor instance
+	 * previous.<br>
+	 * Unlike {@link SQLManager#getSQLInfo()}, the result is not affected by
+	 * the other SQLExecutor instances running on the other threads.
+	 *
+	 * @return the SQL information
+	 * @see SQLManager#getSQLInfo()
+	 */
+	public String getSQLInfo() {
 		return genSQLInfo(getSql(), getParams(), getResourceInfo());
 	}
 
@@ -760,4 +2294,336 @@ public class SQLExecutor implements Closeable {
 		manager.putExecutor(this);
 		return generateStatment(paramMap);
 	}
+
+	private PreparedStatement genStmt(String sql, List<Object> params,
+			boolean returnsKeys) {
+		manager.putExecutor(this);
+		return prepare(sql, params, returnsKeys);
+	}
+
+	private PreparedStatement prepare(String sql, List<Object> params,
+			boolean returnsKeys) {
+		try {
+			if (!returnsKeys)
+				stmt = con().prepareStatement(sql);
+			else if (keyColumns != null)
+				stmt = con().prepareStatement(sql, keyColumns);
+			else
+				stmt = con().prepareStatement(sql,
+						Statement.RETURN_GENERATED_KEYS);
+			if (isCancelled)
+				throw new CancellationException("The statement is cancelled.");
+			if (queryTimeout > 0)
+				stmt.setQueryTimeout(queryTimeout);
+			bind(stmt, params);
+			return stmt;
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(getSQLInfo(), e);
+		}
+	}
+
+	private void bind(PreparedStatement stmt, List<Object> params)
+			throws SQLException {
+		int i = 1;
+		for (Object param : params) {
+			setJDBCData(stmt, param, i++);
+		}
+	}
+
+	private <K> int[] batch(Iterable<?> paramObjs, Class<K> keyClass,
+			List<K> keys) throws SQLException {
+		int batchSize = Config.get().BATCH_SIZE;
+		int[] results = new int[0];
+		String preparedSql = null;
+		int count = 0;
+		for (Object paramObj : paramObjs) {
+			String sql = generateSql(params(paramObj));
+			if (count != 0
+					&& (count >= batchSize || !preparedSql.equals(sql))) {
+				results = concat(results, flush(keyClass, keys));
+				count = 0;
+			}
+			if (count == 0) {
+				stmt = genStmt(sql, sqlGenerator.params, keyClass != null);
+				preparedSql = sql;
+			} else {
+				bind(stmt, sqlGenerator.params);
+			}
+			stmt.addBatch();
+			count++;
+		}
+		if (count != 0)
+			results = concat(results, flush(keyClass, keys));
+		return results;
+	}
+
+	private static long transfer(ResultSet rs, String column, LobSink sink)
+			throws SQLException, IOException {
+		ResultSetMetaData md = rs.getMetaData();
+		int columnCount = md.getColumnCount();
+		int lobColumn = 0;
+		for (int i = 1; i <= columnCount; i++) {
+			if (md.getColumnLabel(i).equalsIgnoreCase(column)) {
+				lobColumn = i;
+				break;
+			}
+		}
+		if (lobColumn == 0)
+			throw new IllegalArgumentException("The column(" + column
+					+ ") is not found in the result set.");
+		// the row passed to the sink consists of the other columns only.
+		String[] labels = new String[columnCount - 1];
+		int[] columns = new int[labels.length];
+		for (int i = 1, j = 0; i <= columnCount; i++) {
+			if (i == lobColumn)
+				continue;
+			labels[j] = md.getColumnLabel(i);
+			columns[j++] = i;
+		}
+		ColumnIndex index = new ColumnIndex(labels);
+		ByteBuffer buf = ByteBuffer.allocate(LOB_BUFFER_SIZE);
+		long count = 0;
+		while (rs.next()) {
+			Object[] values = new Object[index.size()];
+			for (int j = 0; j < columns.length; j++) {
+				values[index.slotOf(j)] = rs.getObject(columns[j]);
+			}
+			InputStream in = rs.getBinaryStream(lobColumn);
+			if (in == null)
+				continue; // NULL LOB, no destination is opened.
+			try {
+				WritableByteChannel channel = sink.open(new ResultMap(index,
+						values));
+				if (channel == null)
+					continue;
+				try {
+					int len;
+					while ((len = in.read(buf.array(), 0, buf.capacity())) != -1) {
+						buf.limit(len);
+						while (buf.hasRemaining())
+							channel.write(buf);
+						buf.clear();
+					}
+				} finally {
+					channel.close();
+				}
+				count++;
+			} finally {
+				in.close();
+			}
+		}
+		return count;
+	}
+
+	private int bulk(Iterable<?> paramObjs, int rowsPerStatement)
+			throws SQLException {
+		Dialect dialect = getDialect(productName);
+		if (!dialect.supportsMultiRowValues())
+			return count(batch(paramObjs, null, null));
+		int total = 0;
+		String rowSql = null;
+		MultiRowValues values = null;
+		int rowLimit = 1;
+		List<Object> rowParams = new ArrayList<Object>();
+		int rows = 0;
+		String preparedSql = null;
+		int preparedRows = 0;
+		for (Object paramObj : paramObjs) {
+			String sql = generateSql(params(paramObj));
+			if (rows != 0 && !rowSql.equals(sql)) {
+				total += insert(values, rowSql, rows, rowParams,
+						rowSql == preparedSql && rows == preparedRows);
+				preparedSql = rowSql;
+				preparedRows = rows;
+				rowParams.clear();
+				rows = 0;
+			}
+			if (!sql.equals(rowSql)) {
+				rowSql = sql;
+				values = MultiRowValues.parse(sql);
+				int paramCount = sqlGenerator.params.size();
+				// the parameters out of the tuple can not be replicated.
+				if (values != null && values.tupleParamCount() != paramCount)
+					values = null;
+				if (values == null)
+					rowLimit = 1;
+				else if (paramCount == 0)
+					rowLimit = rowsPerStatement;
+				else
+					rowLimit = Math.max(1, Math.min(rowsPerStatement, dialect
+							.bindLimit()
+							/ paramCount));
+			}
+			rowParams.addAll(sqlGenerator.params);
+			if (++rows == rowLimit) {
+				total += insert(values, rowSql, rows, rowParams,
+						rowSql == preparedSql && rows == preparedRows);
+				preparedSql = rowSql;
+				preparedRows = rows;
+				rowParams.clear();
+				rows = 0;
+			}
+		}
+		if (rows != 0)
+			total += insert(values, rowSql, rows, rowParams,
+					rowSql == preparedSql && rows == preparedRows);
+		return total;
+	}
+
+	private int insert(MultiRowValues values, String rowSql, int rows,
+			List<Object> params, boolean isPrepared) throws SQLException {
+		if (isPrepared) {
+			bind(stmt, params);
+		} else {
+			if (stmt != null)
+				closeCursor();
+			stmt = genStmt(values == null ? rowSql : values.toSql(rows),
+					params, false);
+		}
+		return stmt.executeUpdate();
+	}
+
+	private static int count(int[] counts) {
+		int total = 0;
+		for (int count : counts) {
+			// the count of a single-row insert is 1 if it is unknown.
+			total += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+		}
+		return total;
+	}
+
+	private <K> int[] flush(Class<K> keyClass, List<K> keys)
+			throws SQLException {
+		try {
+			int[] counts = stmt.executeBatch();
+			if (keyClass != null)
+				addKeys(keyClass, stmt.getGeneratedKeys(), keys);
+			return counts;
+		} finally {
+			closeCursor();
+		}
+	}
+
+	private <K> void addKeys(Class<K> keyClass, ResultSet keysRs, List<K> keys)
+			throws SQLException {
+		for (K key : SQLIterator.genIterator(this, keyClass, keysRs, false)) {
+			keys.add(key);
+		}
+	}
+
+	/**
+	 * Closes the statement and the result set, but keeps the connection
+	 * borrowed. It is used between the statements of one operation, and the
+	 * connection is returned when the operation ends.
+	 */
+	private void closeCursor() {
+		try {
+			new Using<Object>(rs, stmt) {
+				@Override
+				protected Object execute() throws Exception {
+					return null; // do nothing.
+				}
+			}.invoke();
+		} finally {
+			stmt = null;
+			rs = null;
+		}
+	}
+
+	private static int[] concat(int[] head, int[] tail) {
+		int[] result = Arrays.copyOf(head, head.length + tail.length);
+		System.arraycopy(tail, 0, result, head.length, tail.length);
+		return result;
+	}
+
+	/**
+	 * Converts the keys into long[]. A null key is converted into 0.
+	 */
+	static long[] toLongArray(List<Long> list) {
+		long[] array = new long[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			Long key = list.get(i);
+			array[i] = key != null ? key : 0L;
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the connection borrowed from the data source, if the SQLManager
+	 * generated this instance borrows connections.<br>
+	 * The statement and the result set are closed before the connection is
+	 * returned.
+	 */
+	void releaseConnection() {
+		if (borrowedCon != null)
+			closeStatement();
+	}
+
+	/**
+	 * Runs the task on the executor. The task runs on another thread, so the
+	 * SQLManager must borrow a connection for it from the DataSource. The
+	 * connection of the SQLManager generated with Connection is not shared
+	 * across threads, as {@link SQLManager#parallel(Executor, Query...)}
+	 * does not.
+	 */
+	private <R> CompletableFuture<R> async(final Function<R> task) {
+		if (!manager.hasDataSource())
+			throw new UnsupportedOperationException(
+					"Asynchronous query is available on the SQLManager generated with DataSource only.");
+		final CompletableFuture<R> future = new CompletableFuture<R>();
+		future.whenComplete(new BiConsumer<R, Throwable>() {
+			@Override
+			public void accept(R result, Throwable t) {
+				if (t instanceof CancellationException)
+					cancel();
+			}
+		});
+		asyncExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (future.isDone())
+					return;
+				try {
+					future.complete(task.apply());
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Cancels the statement running. The flag is set before the statement is
+	 * read, and {@link SQLExecutor#prepare(String, List, boolean)} reads the
+	 * flag after the statement is set, so the statement prepared at the same
+	 * time is never missed.
+	 */
+	private void cancel() {
+		isCancelled = true;
+		PreparedStatement stmt = this.stmt;
+		if (stmt == null)
+			return;
+		try {
+			stmt.cancel();
+		} catch (SQLException ignore) {
+			// the statement has already been closed.
+		}
+	}
+
+	private Connection con() {
+		if (borrowedCon != null)
+			return borrowedCon;
+		if (!manager.isBorrowingConnection())
+			return manager.con();
+		return borrowedCon = manager.borrowConnection();
+	}
+
+	private void returnConnection() {
+		Connection borrowed = this.borrowedCon;
+		if (borrowed == null)
+			return;
+		this.borrowedCon = null;
+		manager.returnConnection(borrowed);
+	}
 }
@@ -5,17 +5,22 @@ import static tetz42.clione.common.Util.*;
 import static tetz42.clione.util.ClioneUtil.*;
 
 import java.lang.reflect.Field;
+import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
 
 import tetz42.clione.common.Function;
 import tetz42.clione.common.exception.SQLRuntimeException;
 import tetz42.clione.exception.DuplicateKeyException;
+import tetz42.clione.exception.ResultLimitExceededException;
 import tetz42.clione.util.ClioneUtil;
+import tetz42.clione.util.ColumnIndex;
 import tetz42.clione.util.Config;
 import tetz42.clione.util.ResultMap;
 
@@ -26,25 +31,53 @@ public class SQLIterator<T> implements Iterable<T> {
 		return new SQLIterator<T>(executor, clazz, paramMap);
 	}
 
+	static <T> SQLIterator<T> genIterator(SQLExecutor executor, Class<T> clazz,
+			ResultSet rs) throws SQLException {
+		return new SQLIterator<T>(executor, clazz, rs, true);
+	}
+
+	static <T> SQLIterator<T> genIterator(SQLExecutor executor, Class<T> clazz,
+			ResultSet rs, boolean releasesAtEnd) throws SQLException {
+		return new SQLIterator<T>(executor, clazz, rs, releasesAtEnd);
+	}
+
 	private final Class<T> clazz;
 	private final SQLExecutor executor;
 	private final ResultSetMetaData md;
+	private final int maxRows;
+	private final long maxBytes;
+	private final boolean releasesAtEnd;
 	private final ConcurrentHashMap<Class<?>, FieldMapContainer> fieldContainerCache = newConcurrentMap();
 
 	public SQLIterator(SQLExecutor executor, final Class<T> clazz,
 			Map<String, Object> paramMap) {
 		this.executor = executor;
 		this.clazz = clazz;
+		this.maxRows = executor.getMaxRows();
+		this.maxBytes = executor.getMaxBytes();
+		this.releasesAtEnd = true;
 		try {
 			executor.stmt = executor.genStmt(paramMap);
 			executor.rs = executor.stmt.executeQuery();
 			this.md = executor.rs.getMetaData();
 		} catch (SQLException e) {
+			executor.releaseConnection();
 			throw new SQLRuntimeException(mkStringByCRLF(e.getMessage(),
 					executor.getSQLInfo()), e);
 		}
 	}
 
+	private SQLIterator(SQLExecutor executor, Class<T> clazz, ResultSet rs,
+			boolean releasesAtEnd) throws SQLException {
+		this.executor = executor;
+		this.clazz = clazz;
+		this.maxRows = 0;
+		this.maxBytes = 0;
+		this.releasesAtEnd = releasesAtEnd;
+		executor.rs = rs;
+		this.md = rs.getMetaData();
+	}
+
 	/**
 	 * Generates Iterator instance to iterate the result set and convert the
 	 * result into a instance of the specified Class.<br>
@@ -101,15 +134,18 @@ public class SQLIterator<T> implements Iterable<T> {
 	@Override
 	public Iterator<T> iterator() {
 		if (clazz == null || classOf(ResultMap.class, clazz)) {
+			final ColumnIndex index = columnIndex();
+			final int columnCount = index == null ? 0 : getColumnCount();
 			return new RsIterator() {
 				@SuppressWarnings("unchecked")
 				@Override
 				public T nextTask() throws SQLException {
-					ResultMap map = new ResultMap();
-					for (int i = 1; i <= md.getColumnCount(); i++) {
-						map.put(md.getColumnLabel(i), executor.rs.getObject(i));
+					Object[] values = new Object[index.size()];
+					for (int i = 0; i < columnCount; i++) {
+						values[index.slotOf(i)] = measure(executor.rs
+								.getObject(i + 1));
 					}
-					return (T) map;
+					return (T) new ResultMap(index, values);
 				}
 			};
 		} else if (isJDBCGetterType(clazz)) {
@@ -117,7 +153,7 @@ public class SQLIterator<T> implements Iterable<T> {
 				@SuppressWarnings("unchecked")
 				@Override
 				public T nextTask() throws SQLException {
-					return (T) getJDBCData(clazz, executor.rs, 1);
+					return (T) measure(getJDBCData(clazz, executor.rs, 1));
 				}
 			};
 		} else {
@@ -130,8 +166,8 @@ public class SQLIterator<T> implements Iterable<T> {
 						FN fn = builder.con.getField(label);
 						if (fn.f == null)
 							continue;
-						builder.set(fn.name, fn.f, getJDBCData(fn.f,
-								executor.rs, i));
+						builder.set(fn.name, fn.f, measure(getJDBCData(fn.f,
+								executor.rs, i)));
 					}
 					return builder.getInstance();
 				}
@@ -139,6 +175,44 @@ public class SQLIterator<T> implements Iterable<T> {
 		}
 	}
 
+	/**
+	 * Generates Spliterator instance to traverse the result set in order.<br>
+	 * The conversion rules are the same as {@link SQLIterator#iterator()}. The
+	 * Spliterator does not split, and its size is unknown because the result
+	 * set is read forward only.
+	 *
+	 * @see SQLIterator#iterator()
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		int characteristics = Spliterator.ORDERED;
+		if (clazz == null || !isJDBCGetterType(clazz))
+			characteristics |= Spliterator.NONNULL;
+		return Spliterators.spliteratorUnknownSize(iterator(), characteristics);
+	}
+
+	private ColumnIndex columnIndex() {
+		try {
+			String[] labels = new String[md.getColumnCount()];
+			for (int i = 0; i < labels.length; i++) {
+				labels[i] = md.getColumnLabel(i + 1);
+			}
+			return new ColumnIndex(labels);
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(mkStringByCRLF(e.getMessage(),
+					executor.getSQLInfo()), e);
+		}
+	}
+
+	private int getColumnCount() {
+		try {
+			return md.getColumnCount();
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(mkStringByCRLF(e.getMessage(),
+					executor.getSQLInfo()), e);
+		}
+	}
+
 	class ObjBuilder {
 		final Map<String, Object> cache = newMap();
 		final FieldMapContainer con = getFieldContainer(clazz);
@@ -238,6 +312,8 @@ public class SQLIterator<T> implements Iterable<T> {
 	private abstract class RsIterator implements Iterator<T> {
 
 		RsStatus status = RsStatus.UNKOWN;
+		int rows = 0;
+		long bytes = 0;
 
 		@Override
 		public boolean hasNext() {
@@ -250,6 +326,10 @@ public class SQLIterator<T> implements Iterable<T> {
 				default:
 					boolean ret = executor.rs.next();
 					status = ret ? RsStatus.NEXT_OK : RsStatus.ENDED;
+					if (!ret)
+						end();
+					else
+						countRow();
 					return ret;
 				}
 			} catch (SQLException e) {
@@ -264,16 +344,18 @@ public class SQLIterator<T> implements Iterable<T> {
 				switch (status) {
 				case NEXT_OK:
 					status = RsStatus.UNKOWN;
-					return nextTask();
+					return checkBytes(nextTask());
 				case ENDED:
 					throw new UnsupportedOperationException(
 							"Iterator has already ended.");
 				default:
 					if (executor.rs.next()) {
 						status = RsStatus.UNKOWN;
-						return nextTask();
+						countRow();
+						return checkBytes(nextTask());
 					} else {
 						status = RsStatus.ENDED;
+						end();
 						throw new UnsupportedOperationException(
 								"Iterator has already ended.");
 					}
@@ -286,6 +368,57 @@ public class SQLIterator<T> implements Iterable<T> {
 
 		abstract T nextTask() throws SQLException;
 
+		private void end() {
+			// the statement of the multiple results stays open for the next.
+			if (releasesAtEnd)
+				executor.releaseConnection();
+		}
+
+		/**
+		 * Adds the estimated bytes of the value read to the total, if the
+		 * bytes are limited.
+		 *
+		 * @param value
+		 *            the value read from the result set
+		 * @return the value
+		 */
+		Object measure(Object value) {
+			if (maxBytes > 0)
+				bytes += estimateSize(value);
+			return value;
+		}
+
+		private void countRow() {
+			rows++;
+			if (maxRows > 0 && rows > maxRows)
+				terminate("The result exceeded the limit of " + maxRows
+						+ " rows.");
+		}
+
+		private T checkBytes(T row) {
+			if (maxBytes > 0 && bytes > maxBytes)
+				terminate("The result exceeded the limit of " + maxBytes
+						+ " bytes, " + rows + " rows read.");
+			return row;
+		}
+
+		/**
+		 * Cancels the statement, closes the cursor and throws the exception.
+		 */
+		private void terminate(String msg) {
+			status = RsStatus.ENDED;
+			String sqlInfo = executor.getSQLInfo();
+			try {
+				if (executor.stmt != null)
+					executor.stmt.cancel();
+			} catch (SQLException ignore) {
+			} finally {
+				executor.closeStatement();
+			}
+			throw new ResultLimitExceededException(mkStringByCRLF(msg,
+					sqlInfo));
+		}
+
 		@Override
 		public void remove() {
 			throw new UnsupportedOperationException(
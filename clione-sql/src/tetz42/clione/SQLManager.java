@@ -22,19 +22,38 @@ import static tetz42.clione.util.ClioneUtil.*;
 import java.io.Closeable;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.util.HashSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
+import javax.sql.DataSource;
+
+import tetz42.clione.common.Function;
 import tetz42.clione.common.Using;
+import tetz42.clione.common.exception.SQLRuntimeException;
+import tetz42.clione.common.exception.WrapException;
 import tetz42.clione.exception.ConnectionNotFoundException;
+import tetz42.clione.lang.NegativePredicate;
 import tetz42.clione.loader.LoaderUtil;
+import tetz42.clione.util.BeanParamMap;
 import tetz42.clione.util.Config;
 import tetz42.clione.util.ParamMap;
 
 /**
  * The entry point of Clione-SQL.<br>
+ * The instance can be shared by multiple threads as long as its connection
+ * can be. The SQLExecutor instances generated are tracked in a concurrent set,
+ * and the information of the SQL performed previous is replaced atomically.
+ * Each SQLExecutor instance keeps the information of its own SQL.
  *
  * @author tetz
+ * @see SQLExecutor#getSQLInfo()
  */
 public class SQLManager implements Closeable {
 
@@ -65,6 +84,24 @@ public class SQLManager implements Closeable {
 		}
 	}
 
+	/**
+	 * The SQL performed previous, its parameters and its resource
+	 * information.
+	 */
+	private static class ExecutedInfo {
+		static final ExecutedInfo EMPTY = new ExecutedInfo(null, null, null);
+
+		final String resourceInfo;
+		final String sql;
+		final List<Object> params;
+
+		ExecutedInfo(String resourceInfo, String sql, List<Object> params) {
+			this.resourceInfo = resourceInfo;
+			this.sql = sql;
+			this.params = params;
+		}
+	}
+
 	private static ThreadLocal<Connection> tcon = new ThreadLocal<Connection>();
 
 	/**
@@ -79,7 +116,7 @@ public class SQLManager implements Closeable {
 	 * @see Config#DBMS_PRODUCT_NAME
 	 */
 	public static SQLManager sqlManager() {
-		return new SQLManager(null, (String) null);
+		return new SQLManager((Connection) null, (String) null);
 	}
 
 	/**
@@ -107,7 +144,7 @@ public class SQLManager implements Closeable {
 	 * @see SQLManager#setThreadConnection(Connection)
 	 */
 	public static SQLManager sqlManager(Product product) {
-		return new SQLManager(null, product);
+		return new SQLManager((Connection) null, product);
 	}
 
 	/**
@@ -121,7 +158,7 @@ public class SQLManager implements Closeable {
 	 * @see SQLManager#setThreadConnection(Connection)
 	 */
 	public static SQLManager sqlManager(String productName) {
-		return new SQLManager(null, productName);
+		return new SQLManager((Connection) null, productName);
 	}
 
 	/**
@@ -150,6 +187,58 @@ public class SQLManager implements Closeable {
 		return new SQLManager(con, productName);
 	}
 
+	/**
+	 * Generates SQLManager instance.<br>
+	 * The instance generated borrows a connection from the data source for
+	 * each operation, and returns it when the operation ends. In case of
+	 * {@link SQLExecutor#each()}, the connection is returned when the
+	 * iteration ends or the SQLExecutor instance is closed.<br>
+	 * It will be determined by Config#DBMS_PRODUCT_NAME or the value obtained
+	 * by DatabaseMetaData#getDatabaseProductName() what RDBMS products are.
+	 *
+	 * @param dataSource
+	 *            data source
+	 * @return SQLManager instance
+	 * @see SQLManager#transaction(Function)
+	 * @see Config#DBMS_PRODUCT_NAME
+	 */
+	public static SQLManager sqlManager(DataSource dataSource) {
+		return new SQLManager(dataSource, (String) null);
+	}
+
+	/**
+	 * Generates SQLManager instance.<br>
+	 * The instance generated borrows a connection from the data source for
+	 * each operation, and returns it when the operation ends.
+	 *
+	 * @param dataSource
+	 *            data source
+	 * @param product
+	 *            RDBMS product
+	 * @return SQLManager instance
+	 * @see SQLManager#sqlManager(DataSource)
+	 */
+	public static SQLManager sqlManager(DataSource dataSource, Product product) {
+		return new SQLManager(dataSource, product);
+	}
+
+	/**
+	 * Generates SQLManager instance.<br>
+	 * The instance generated borrows a connection from the data source for
+	 * each operation, and returns it when the operation ends.
+	 *
+	 * @param dataSource
+	 *            data source
+	 * @param productName
+	 *            RDBMS product name. ex) oracle, mysql, db2, and so on.
+	 * @return SQLManager instance
+	 * @see SQLManager#sqlManager(DataSource)
+	 */
+	public static SQLManager sqlManager(DataSource dataSource,
+			String productName) {
+		return new SQLManager(dataSource, productName);
+	}
+
 	/**
 	 * Registers the connection with thread local variable.<br>
 	 * Note: If you register a connection using this method,
@@ -160,7 +249,10 @@ public class SQLManager implements Closeable {
 	 *            connection
 	 */
 	public static void setThreadConnection(Connection con) {
-		tcon.set(con);
+		if (con == null)
+			tcon.remove();
+		else
+			tcon.set(con);
 	}
 
 	/**
@@ -203,7 +295,20 @@ public class SQLManager implements Closeable {
 	 * @see ParamMap#object(Object)
 	 */
 	public static ParamMap params(Object obj) {
-		return params().object(obj);
+		return ParamMap.of(obj);
+	}
+
+	/**
+	 * Generates ParamMap instance which inspects the parameter object lazily.
+	 * Only the keys referred by the SQL are read from the object.
+	 *
+	 * @param obj
+	 *            object
+	 * @return ParamMap instance
+	 * @see BeanParamMap
+	 */
+	public static ParamMap lazyParams(Object obj) {
+		return new BeanParamMap(obj);
 	}
 
 	/**
@@ -236,20 +341,24 @@ public class SQLManager implements Closeable {
 	}
 
 	private final Connection con;
+	private final DataSource dataSource;
+	private final ThreadLocal<Connection> pinnedCon = new ThreadLocal<Connection>();
 	private final String productName;
-	private final HashSet<SQLExecutor> processingExecutorSet = new HashSet<SQLExecutor>();
-	private String resourceInfo;
-	private String executedSql;
-	private List<Object> executedParams;
-	private Object[] negativeValues = null;
+	private final Set<SQLExecutor> processingExecutorSet = Collections
+			.newSetFromMap(new ConcurrentHashMap<SQLExecutor, Boolean>());
+	private volatile ExecutedInfo executedInfo = ExecutedInfo.EMPTY;
+	private volatile NegativePredicate negative = NegativePredicate.DEFAULT;
+	private volatile Executor asyncExecutor = DefaultExecutor.get();
 
 	private SQLManager(Connection con, Product product) {
 		this.con = getCon(con);
+		this.dataSource = null;
 		this.productName = product.name().toLowerCase();
 	}
 
 	private SQLManager(Connection con, String productName) {
 		this.con = getCon(con);
+		this.dataSource = null;
 
 		if (productName == null)
 			productName = Config.get().DBMS_PRODUCT_NAME;
@@ -264,6 +373,35 @@ public class SQLManager implements Closeable {
 		this.productName = productName;
 	}
 
+	private SQLManager(DataSource dataSource, Product product) {
+		this.con = null;
+		this.dataSource = dataSource;
+		this.productName = product.name().toLowerCase();
+	}
+
+	private SQLManager(DataSource dataSource, String productName) {
+		this.con = null;
+		this.dataSource = dataSource;
+
+		if (productName == null)
+			productName = Config.get().DBMS_PRODUCT_NAME;
+
+		if (productName == null) {
+			try {
+				final Connection metaCon = dataSource.getConnection();
+				productName = new Using<String>(metaCon) {
+					@Override
+					protected String execute() throws SQLException {
+						return toProduct(metaCon.getMetaData()
+								.getDatabaseProductName());
+					}
+				}.invoke();
+			} catch (Exception ignore) {
+			}
+		}
+		this.productName = productName;
+	}
+
 	/**
 	 * Generates SQLExecutor instance.<br>
 	 * The given SQL is bound to the instance.
@@ -276,7 +414,7 @@ public class SQLManager implements Closeable {
 	public SQLExecutor useSQL(String sql) {
 		SQLExecutor sqlExecutor = new SQLExecutor(this, getNodeBySQL(sql));
 		// TODO better solution.
-		this.resourceInfo = sqlExecutor.resourceInfo;
+		setResourceInfo(sqlExecutor.resourceInfo);
 		return sqlExecutor;
 	}
 
@@ -301,7 +439,7 @@ public class SQLManager implements Closeable {
 		SQLExecutor sqlExecutor = new SQLExecutor(this, getNodeByClass(clazz,
 				sqlFile, productName));
 		// TODO better solution.
-		this.resourceInfo = sqlExecutor.resourceInfo;
+		setResourceInfo(sqlExecutor.resourceInfo);
 		return sqlExecutor;
 	}
 
@@ -319,7 +457,7 @@ public class SQLManager implements Closeable {
 		SQLExecutor sqlExecutor = new SQLExecutor(this, getNodeByPath(sqlPath,
 				productName));
 		// TODO better solution.
-		this.resourceInfo = sqlExecutor.resourceInfo;
+		setResourceInfo(sqlExecutor.resourceInfo);
 		return sqlExecutor;
 	}
 
@@ -336,7 +474,7 @@ public class SQLManager implements Closeable {
 	public SQLExecutor useStream(InputStream in) {
 		SQLExecutor sqlExecutor = new SQLExecutor(this, getNodeByStream(in));
 		// TODO better solution.
-		this.resourceInfo = sqlExecutor.resourceInfo;
+		setResourceInfo(sqlExecutor.resourceInfo);
 		return sqlExecutor;
 	}
 
@@ -365,7 +503,101 @@ public class SQLManager implements Closeable {
 	 * @return this
 	 */
 	public SQLManager asNegative(Object... negativeValues) {
-		this.negativeValues = combine(this.negativeValues, negativeValues);
+		this.negative = this.negative.with(negativeValues);
+		return this;
+	}
+
+	/**
+	 * Performs the given queries concurrently and waits for all of them.<br>
+	 * Each query is performed on its own connection borrowed from the data
+	 * source. The results and the elapsed times are stored into the queries.
+	 * The queries run on the Executor specified by
+	 * {@link SQLManager#executeOn(Executor)}.
+	 *
+	 * @param queries
+	 *            the queries generated by different SQLExecutor instances
+	 * @throws UnsupportedOperationException
+	 *             if this SQLManager instance is not generated with a data
+	 *             source
+	 * @see SQLExecutor#query(Class, Map)
+	 * @see SQLManager#parallel(Executor, Query...)
+	 */
+	public void parallel(Query<?>... queries) {
+		parallel(asyncExecutor, queries);
+	}
+
+	/**
+	 * Performs the given queries concurrently on the given Executor and waits
+	 * for all of them.<br>
+	 * Each query is performed on its own connection borrowed from the data
+	 * source. The results and the elapsed times are stored into the queries.
+	 * If some queries fail, the exception of the first failed query in the
+	 * given order is thrown after all the queries end.
+	 *
+	 * @param executor
+	 *            the Executor to run the queries
+	 * @param queries
+	 *            the queries generated by different SQLExecutor instances
+	 * @throws UnsupportedOperationException
+	 *             if this SQLManager instance is not generated with a data
+	 *             source
+	 * @see SQLExecutor#query(Class, Map)
+	 */
+	public void parallel(Executor executor, Query<?>... queries) {
+		if (this.dataSource == null)
+			throw new UnsupportedOperationException(
+					"Parallel query is available on the SQLManager generated with DataSource only.");
+		List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>(
+				queries.length);
+		for (final Query<?> query : queries) {
+			FutureTask<Object> task = new FutureTask<Object>(new Runnable() {
+				@Override
+				public void run() {
+					query.perform();
+				}
+			}, null);
+			executor.execute(task);
+			tasks.add(task);
+		}
+		Throwable failure = null;
+		boolean isInterrupted = false;
+		for (FutureTask<Object> task : tasks) {
+			while (true) {
+				try {
+					task.get();
+					break;
+				} catch (InterruptedException e) {
+					isInterrupted = true;
+				} catch (ExecutionException e) {
+					if (failure == null)
+						failure = e.getCause();
+					break;
+				}
+			}
+		}
+		if (isInterrupted)
+			Thread.currentThread().interrupt();
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+		if (failure != null)
+			throw new WrapException(failure);
+	}
+
+	/**
+	 * Specifies the Executor to run the asynchronous methods of the
+	 * SQLExecutor instances generated by this instance after this call.<br>
+	 * By default, virtual threads are used if they are available, otherwise
+	 * the shared pool of daemon threads is used.
+	 *
+	 * @param executor
+	 *            the Executor
+	 * @return this
+	 * @see SQLExecutor#findAllAsync(Class, Map)
+	 */
+	public SQLManager executeOn(Executor executor) {
+		this.asyncExecutor = executor;
 		return this;
 	}
 
@@ -391,7 +623,8 @@ public class SQLManager implements Closeable {
 	 * @return the SQL information
 	 */
 	public String getSQLInfo() {
-		return genSQLInfo(getSql(), getParams(), getResourceInfo());
+		ExecutedInfo info = this.executedInfo;
+		return genSQLInfo(info.sql, info.params, info.resourceInfo);
 	}
 
 	/**
@@ -401,7 +634,7 @@ public class SQLManager implements Closeable {
 	 * @see SQLManager#getSQLInfo()
 	 */
 	public String getResourceInfo() {
-		return this.resourceInfo;
+		return this.executedInfo.resourceInfo;
 	}
 
 	/**
@@ -411,7 +644,7 @@ public class SQLManager implements Closeable {
 	 * @see SQLManager#getSQLInfo()
 	 */
 	public String getSql() {
-		return this.executedSql;
+		return this.executedInfo.sql;
 	}
 
 	/**
@@ -421,7 +654,7 @@ public class SQLManager implements Closeable {
 	 * @see SQLManager#getSQLInfo()
 	 */
 	public List<Object> getParams() {
-		return this.executedParams;
+		return this.executedInfo.params;
 	}
 
 	/**
@@ -430,9 +663,53 @@ public class SQLManager implements Closeable {
 	 * @return database connection
 	 */
 	public Connection con() {
-		if (this.con == null)
-			throw new ConnectionNotFoundException("No connection!");
-		return this.con;
+		if (this.con != null)
+			return this.con;
+		if (this.dataSource != null && pinnedCon.get() != null)
+			return pinnedCon.get();
+		throw new ConnectionNotFoundException("No connection!");
+	}
+
+	/**
+	 * Performs the task with the connection borrowed from the data source.
+	 * All the operations of this SQLManager instance on the current thread
+	 * use the connection until the task ends.<br>
+	 * The connection is committed if the task ends normally, and rolled back
+	 * if the task throws an exception. The nested call just performs the task
+	 * on the outer transaction.
+	 *
+	 * @param <T>
+	 * @param task
+	 *            the task to be performed
+	 * @return the result of the task
+	 * @throws UnsupportedOperationException
+	 *             if this SQLManager instance is not generated with a data
+	 *             source
+	 * @see SQLManager#sqlManager(DataSource)
+	 */
+	public <T> T transaction(Function<T> task) {
+		if (this.dataSource == null)
+			throw new UnsupportedOperationException(
+					"Transaction is available on the SQLManager generated with DataSource only.");
+		if (pinnedCon.get() != null)
+			return task.apply();
+		final Connection pinned = borrowConnection();
+		boolean autoCommit = true;
+		boolean isSucceeded = false;
+		try {
+			autoCommit = pinned.getAutoCommit();
+			pinned.setAutoCommit(false);
+			pinnedCon.set(pinned);
+			T result = task.apply();
+			pinned.commit();
+			isSucceeded = true;
+			return result;
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		} finally {
+			pinnedCon.remove();
+			endTransaction(pinned, autoCommit, isSucceeded);
+		}
 	}
 
 	/**
@@ -444,12 +721,17 @@ public class SQLManager implements Closeable {
 	}
 
 	/**
-	 * Close the statement, the result set and the database connection.
+	 * Close the statement, the result set and the database connection.<br>
+	 * In case of the SQLManager instance generated with DataSource, the
+	 * connections borrowed are returned to the data source.
 	 *
 	 * @see SQLManager#closeStatement();
 	 */
 	public void closeConnection() {
-		closeResources(processingExecutorSet, con());
+		if (this.dataSource != null)
+			closeStatement();
+		else
+			closeResources(processingExecutorSet, con());
 	}
 
 	/**
@@ -463,8 +745,8 @@ public class SQLManager implements Closeable {
 		closeStatement();
 	}
 
-	Object[] getNegativeValues() {
-		return negativeValues;
+	NegativePredicate getNegative() {
+		return negative;
 	}
 
 	void putExecutor(SQLExecutor executor) {
@@ -476,15 +758,66 @@ public class SQLManager implements Closeable {
 	}
 
 	void setInfo(String resourceInfo, String sql, List<Object> params) {
-		this.resourceInfo = resourceInfo;
-		this.executedSql = sql;
-		this.executedParams = params;
+		this.executedInfo = new ExecutedInfo(resourceInfo, sql, params);
+	}
+
+	private void setResourceInfo(String resourceInfo) {
+		ExecutedInfo info = this.executedInfo;
+		this.executedInfo = new ExecutedInfo(resourceInfo, info.sql,
+				info.params);
 	}
 
 	String getProductName() {
 		return productName;
 	}
 
+	Executor getAsyncExecutor() {
+		return asyncExecutor;
+	}
+
+	boolean hasDataSource() {
+		return this.dataSource != null;
+	}
+
+	/**
+	 * @return true if the SQLExecutor instance should borrow a connection for
+	 *         its operation
+	 */
+	boolean isBorrowingConnection() {
+		return this.dataSource != null && pinnedCon.get() == null;
+	}
+
+	Connection borrowConnection() {
+		try {
+			return this.dataSource.getConnection();
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+
+	void returnConnection(Connection borrowed) {
+		closeResources(borrowed);
+	}
+
+	private void endTransaction(final Connection pinned,
+			final boolean autoCommit, final boolean isSucceeded) {
+		try {
+			new Using<Object>(pinned) {
+				@Override
+				protected Object execute() throws SQLException {
+					if (!isSucceeded)
+						pinned.rollback();
+					pinned.setAutoCommit(autoCommit);
+					return null;
+				}
+			}.invoke();
+		} catch (RuntimeException e) {
+			if (isSucceeded)
+				throw e;
+			// the exception thrown by the task takes precedence.
+		}
+	}
+
 	private static String toProduct(String productName) {
 		if (productName == null)
 			return null;
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Publisher which reads the result of the SQL according to the demand of
+ * its subscriber.<br>
+ * The statement is executed when the subscriber requests the first element,
+ * and the result set is read only as far as requested. The statement and
+ * the result set are closed when the result set ends, an error occurs or the
+ * subscription is cancelled. If the subscriber throws an exception, the
+ * subscription is cancelled and the exception is rethrown to the thread
+ * delivering the rows, not notified to the subscriber.<br>
+ * Only one subscriber is accepted, because the SQLExecutor instance holds
+ * one result set.
+ *
+ * @param <T>
+ *            the class of the result instances
+ * @see SQLExecutor#publisher(Class, Map)
+ * @author tetz
+ */
+class SQLPublisher<T> implements Flow.Publisher<T> {
+
+	private final SQLExecutor executor;
+	private final Class<T> entityClass;
+	private final Map<String, Object> paramMap;
+	private final Executor asyncExecutor;
+	private final AtomicBoolean isSubscribed = new AtomicBoolean(false);
+
+	SQLPublisher(SQLExecutor executor, Class<T> entityClass,
+			Map<String, Object> paramMap, Executor asyncExecutor) {
+		this.executor = executor;
+		this.entityClass = entityClass;
+		this.paramMap = paramMap;
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		if (subscriber == null)
+			throw new NullPointerException("The subscriber must not be null.");
+		if (!isSubscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException(
+					"The publisher accepts only one subscriber."));
+			return;
+		}
+		subscriber.onSubscribe(new RowSubscription(subscriber));
+	}
+
+	private class RowSubscription implements Flow.Subscription, Runnable {
+
+		private final Flow.Subscriber<? super T> subscriber;
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile boolean isCancelled = false;
+		private volatile Throwable invalidRequest;
+
+		// accessed by the draining thread only
+		private Iterator<T> ite;
+		private boolean isDone = false;
+
+		RowSubscription(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException(
+						"The number of elements requested must be positive: "
+								+ n);
+			} else {
+				long current, next;
+				do {
+					current = requested.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!requested.compareAndSet(current, next));
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			isCancelled = true;
+			schedule();
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				if (!isDone)
+					drain();
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void schedule() {
+			if (wip.getAndIncrement() == 0)
+				asyncExecutor.execute(this);
+		}
+
+		private void drain() {
+			try {
+				if (isCancelled) {
+					finish();
+					return;
+				}
+				if (invalidRequest != null) {
+					finish();
+					subscriber.onError(invalidRequest);
+					return;
+				}
+				long emitted = 0;
+				long demand = requested.get();
+				while (emitted != demand && !isCancelled) {
+					if (ite == null)
+						ite = executor.each(entityClass, paramMap).iterator();
+					if (!ite.hasNext()) {
+						finish();
+						subscriber.onComplete();
+						return;
+					}
+					T row = ite.next();
+					try {
+						subscriber.onNext(row);
+					} catch (Throwable t) {
+						// the subscription is considered cancelled.
+						finish();
+						throw t;
+					}
+					emitted++;
+				}
+				if (isCancelled) {
+					finish();
+				} else if (ite != null && !ite.hasNext()) {
+					// the demand is satisfied by exactly the rest rows.
+					finish();
+					subscriber.onComplete();
+				} else if (emitted != 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+			} catch (Throwable t) {
+				if (isDone)
+					throw t; // thrown by the subscriber, not notified to it.
+				finish();
+				subscriber.onError(t);
+			}
+		}
+
+		private void finish() {
+			isDone = true;
+			try {
+				executor.closeStatement();
+			} catch (RuntimeException ignore) {
+				// the subscriber is notified of the original state.
+			}
+		}
+	}
+}
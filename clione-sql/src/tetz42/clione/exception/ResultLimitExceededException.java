@@ -0,0 +1,16 @@
+package tetz42.clione.exception;
+
+public class ResultLimitExceededException extends RuntimeException {
+
+	/***/
+	private static final long serialVersionUID = 1L;
+
+	public ResultLimitExceededException(String msg) {
+		super(msg);
+	}
+
+	public ResultLimitExceededException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+
+}
@@ -4,7 +4,6 @@ package tetz42.clione.lang;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -63,7 +62,7 @@ public class ContextUtil {
 	private static class Context {
 		String productName;
 		LinkedList<ResInfoHolder> resourceInfoes = new LinkedList<ContextUtil.ResInfoHolder>();
-		HashSet<Object> negativeValues = new HashSet<Object>();
+		NegativePredicate negative = NegativePredicate.DEFAULT;
 		List<Extention> curExtentions = new ArrayList<Extention>();
 		List<ParamMap> curParamMaps = new ArrayList<ParamMap>();
 		IFStatus ifStatus = IFStatus.NOTHING;
@@ -131,35 +130,35 @@ public class ContextUtil {
 	}
 
 	public static void addNegative(Object... negatives) {
-		if (negatives == null)
-			return;
-		for (Object negative : negatives)
-			if (negative != null)
-				getContext().negativeValues.add(negative);
+		Context context = getContext();
+		context.negative = context.negative.with(negatives);
+	}
+
+	public static void setNegative(NegativePredicate negative) {
+		getContext().negative = negative != null ? negative
+				: NegativePredicate.DEFAULT;
+	}
+
+	public static NegativePredicate getNegative() {
+		return getContext().negative;
 	}
 
 	public static boolean isNegative(Object obj) {
 		if (obj == null || Boolean.FALSE.equals(obj))
 			return true;
-		return getContext().negativeValues.contains(obj);
+		return getContext().negative.isNegative(obj);
 	}
 
 	public static boolean isAllNegative(Object... objs) {
-		for (Object obj : objs)
-			if (!isNegative(obj))
-				return false;
-		return true;
+		return getContext().negative.isAllNegative(objs);
 	}
 
 	public static boolean isAllNegative(Iterable<?> objs) {
-		for (Object obj : objs)
-			if (!isNegative(obj))
-				return false;
-		return true;
+		return getContext().negative.isAllNegative(objs);
 	}
 
 	public static void clearNegative() {
-		getContext().negativeValues.clear();
+		getContext().negative = NegativePredicate.DEFAULT;
 	}
 
 	public static String fusionPath(String absolutePath, String relativePath) {
@@ -200,7 +199,11 @@ public class ContextUtil {
 	}
 
 	public static Dialect getDialect() {
-		Dialect dialect = map.get(getContext().productName);
+		return getDialect(getContext().productName);
+	}
+
+	public static Dialect getDialect(String productName) {
+		Dialect dialect = map.get(productName);
 		return dialect != null ? dialect : map.get(STANDARD_RDBMS);
 	}
 
@@ -213,7 +216,13 @@ public class ContextUtil {
 		return obj == null ? null : escapeBySharp(String.valueOf(obj));
 	}
 
+	/**
+	 * Removes the context of the current thread.<br>
+	 * The context lives only while a SQL is generated, so no context is
+	 * retained by the thread after that, even if the thread is a virtual
+	 * thread or a pooled thread.
+	 */
 	public static void clear() {
-		tcontext.set(null);
+		tcontext.remove();
 	}
 }
@@ -125,11 +125,12 @@ public class Extention extends ClioneFunction {
 
 			@Override
 			protected Instruction perform(Instruction inst) {
+				NegativePredicate negative = ContextUtil.getNegative();
 				Instruction resultInst = inst;
 				while (inst != null) {
 					List<Object> newParams = new ArrayList<Object>();
 					for (Object e : inst.params) {
-						if (!ContextUtil.isNegative(e))
+						if (!negative.isNegative(e))
 							newParams.add(e);
 					}
 					inst.params.clear();
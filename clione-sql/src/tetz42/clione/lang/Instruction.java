@@ -3,7 +3,6 @@ package tetz42.clione.lang;
 import static tetz42.clione.common.Util.*;
 import static tetz42.clione.util.ClioneUtil.*;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import tetz42.clione.util.ListWithDelim;
@@ -30,7 +29,7 @@ public class Instruction {
 	public boolean isNumber = false;
 
 	public Instruction() {
-		this(new ArrayList<Object>());
+		this(new ParamList());
 	}
 
 	public Instruction(List<Object> params) {
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.lang;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The immutable predicate which tests whether a parameter value is negative.<br>
+ * The negative values configured through SQLManager#asNegative(Object...) or
+ * SQLExecutor#asNegative(Object...) are compiled into this predicate once, and
+ * it is shared by every rendering of the SQL.<br>
+ * By default, null and Boolean.FALSE are negative.
+ *
+ * @author tetz
+ */
+public final class NegativePredicate {
+
+	/**
+	 * The predicate which considers only null and Boolean.FALSE as negative.
+	 */
+	public static final NegativePredicate DEFAULT = new NegativePredicate(
+			false, false, false, false, Collections.<Object> emptySet());
+
+	/**
+	 * The final classes whose instances can be equal to the instances of the
+	 * same class only.
+	 */
+	private static final Set<Class<?>> valueTypes;
+	static {
+		Set<Class<?>> set = Collections
+				.newSetFromMap(new IdentityHashMap<Class<?>, Boolean>());
+		set.add(String.class);
+		set.add(Boolean.class);
+		set.add(Character.class);
+		set.add(Byte.class);
+		set.add(Short.class);
+		set.add(Integer.class);
+		set.add(Long.class);
+		set.add(Float.class);
+		set.add(Double.class);
+		valueTypes = Collections.unmodifiableSet(set);
+	}
+
+	/**
+	 * Generates the predicate which considers the given values as negative in
+	 * addition to the default negative values.
+	 *
+	 * @param values
+	 *            values to be considered as negative
+	 * @return the predicate
+	 */
+	public static NegativePredicate of(Object... values) {
+		return DEFAULT.with(values);
+	}
+
+	private final boolean emptyString;
+	private final boolean emptyList;
+	private final boolean emptySet;
+	private final boolean emptyMap;
+	private final Set<Object> values;
+	private final Object[] valueArray;
+	private final Set<Class<?>> valueClasses;
+
+	private NegativePredicate(boolean emptyString, boolean emptyList,
+			boolean emptySet, boolean emptyMap, Set<Object> values) {
+		this.emptyString = emptyString;
+		this.emptyList = emptyList;
+		this.emptySet = emptySet;
+		this.emptyMap = emptyMap;
+		this.values = values;
+		this.valueArray = values.toArray();
+		Set<Class<?>> classes = Collections
+				.newSetFromMap(new IdentityHashMap<Class<?>, Boolean>());
+		for (Object value : valueArray)
+			classes.add(value.getClass());
+		this.valueClasses = classes;
+	}
+
+	/**
+	 * Generates the predicate which considers the given values as negative in
+	 * addition to the negative values of this predicate.<br>
+	 * This predicate itself is not changed.
+	 *
+	 * @param negatives
+	 *            values to be considered as negative
+	 * @return the predicate, or this if no new negative value is given
+	 */
+	public NegativePredicate with(Object... negatives) {
+		if (negatives == null || negatives.length == 0)
+			return this;
+		boolean emptyString = this.emptyString;
+		boolean emptyList = this.emptyList;
+		boolean emptySet = this.emptySet;
+		boolean emptyMap = this.emptyMap;
+		Set<Object> values = new HashSet<Object>(this.values);
+		for (Object negative : negatives) {
+			if (negative == null || Boolean.FALSE.equals(negative))
+				continue;
+			if ("".equals(negative))
+				emptyString = true;
+			else if (negative instanceof List<?>
+					&& ((List<?>) negative).isEmpty())
+				emptyList = true;
+			else if (negative instanceof Set<?>
+					&& ((Set<?>) negative).isEmpty())
+				emptySet = true;
+			else if (negative instanceof Map<?, ?>
+					&& ((Map<?, ?>) negative).isEmpty())
+				emptyMap = true;
+			else
+				values.add(negative);
+		}
+		if (emptyString == this.emptyString && emptyList == this.emptyList
+				&& emptySet == this.emptySet && emptyMap == this.emptyMap
+				&& values.size() == this.values.size())
+			return this;
+		return new NegativePredicate(emptyString, emptyList, emptySet,
+				emptyMap, Collections.unmodifiableSet(values));
+	}
+
+	/**
+	 * Tests whether the given object is negative.
+	 *
+	 * @param obj
+	 *            the object to be tested
+	 * @return true - negative, false - not negative
+	 */
+	public boolean isNegative(Object obj) {
+		if (obj == null || obj == Boolean.FALSE)
+			return true;
+		if (obj instanceof String) {
+			if (((String) obj).length() == 0)
+				return emptyString;
+		} else if (obj instanceof Boolean) {
+			if (!((Boolean) obj).booleanValue())
+				return true;
+		} else if (obj instanceof Collection<?> || obj instanceof Map<?, ?>) {
+			if (isEmptyNegative(obj))
+				return true;
+		}
+		if (valueArray.length == 0)
+			return false;
+		for (Object value : valueArray) {
+			if (value == obj)
+				return true;
+		}
+		if (valueTypes.contains(obj.getClass())
+				&& !valueClasses.contains(obj.getClass()))
+			return false;
+		return values.contains(obj);
+	}
+
+	/**
+	 * Tests whether all of the given objects are negative.
+	 *
+	 * @param objs
+	 *            the objects to be tested
+	 * @return true - all negative, false - contains a positive value
+	 */
+	public boolean isAllNegative(Iterable<?> objs) {
+		for (Object obj : objs)
+			if (!isNegative(obj))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Tests whether all of the given objects are negative.
+	 *
+	 * @param objs
+	 *            the objects to be tested
+	 * @return true - all negative, false - contains a positive value
+	 */
+	public boolean isAllNegative(Object... objs) {
+		for (Object obj : objs)
+			if (!isNegative(obj))
+				return false;
+		return true;
+	}
+
+	private boolean isEmptyNegative(Object obj) {
+		if (obj instanceof List<?>)
+			return emptyList && ((List<?>) obj).isEmpty();
+		if (obj instanceof Set<?>)
+			return emptySet && ((Set<?>) obj).isEmpty();
+		if (obj instanceof Map<?, ?>)
+			return emptyMap && ((Map<?, ?>) obj).isEmpty();
+		return false;
+	}
+}
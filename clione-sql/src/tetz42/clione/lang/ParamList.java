@@ -0,0 +1,342 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.lang;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * The list of SQL parameters bound to an {@link Instruction}.<br>
+ * The collections and arrays passed as parameter values are not copied but
+ * referred as segments of this list, and merging two lists copies only the
+ * segment references. So the values of IN-lists are expanded only once, when
+ * they are bound to the PreparedStatement.<br>
+ * The referred segments are never modified. If an element of a referred
+ * segment is modified through this list, the whole list is expanded first.
+ *
+ * @author tetz
+ */
+public class ParamList extends AbstractList<Object> {
+
+	private abstract static class Segment {
+		abstract int size();
+
+		abstract Object get(int index);
+
+		abstract Iterator<?> iterator();
+
+		boolean isRandomAccess() {
+			return true;
+		}
+	}
+
+	private static class Values extends Segment {
+		final ArrayList<Object> list;
+
+		Values() {
+			this.list = new ArrayList<Object>();
+		}
+
+		Values(int initialCapacity) {
+			this.list = new ArrayList<Object>(initialCapacity);
+		}
+
+		@Override
+		int size() {
+			return list.size();
+		}
+
+		@Override
+		Object get(int index) {
+			return list.get(index);
+		}
+
+		@Override
+		Iterator<?> iterator() {
+			return list.iterator();
+		}
+	}
+
+	private static class CollectionRef extends Segment {
+		final Collection<?> c;
+		final int size;
+
+		CollectionRef(Collection<?> c) {
+			this.c = c;
+			this.size = c.size();
+		}
+
+		@Override
+		int size() {
+			return size;
+		}
+
+		@Override
+		Object get(int index) {
+			return ((List<?>) c).get(index);
+		}
+
+		@Override
+		Iterator<?> iterator() {
+			return c.iterator();
+		}
+
+		@Override
+		boolean isRandomAccess() {
+			return c instanceof List<?> && c instanceof RandomAccess;
+		}
+	}
+
+	private static class ArrayRef extends Segment {
+		final Object array;
+		final int size;
+
+		ArrayRef(Object array) {
+			this.array = array;
+			this.size = Array.getLength(array);
+		}
+
+		@Override
+		int size() {
+			return size;
+		}
+
+		@Override
+		Object get(int index) {
+			return Array.get(array, index);
+		}
+
+		@Override
+		Iterator<?> iterator() {
+			return new Iterator<Object>() {
+				int index = 0;
+
+				@Override
+				public boolean hasNext() {
+					return index < size;
+				}
+
+				@Override
+				public Object next() {
+					if (index >= size)
+						throw new NoSuchElementException();
+					return Array.get(array, index++);
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException(
+							"Iterator#remove is not supported.");
+				}
+			};
+		}
+	}
+
+	private final ArrayList<Segment> segments = new ArrayList<Segment>(2);
+	private int size = 0;
+
+	/**
+	 * Adds the reference to the specified collection as the elements of this
+	 * list. The collection is not copied.
+	 *
+	 * @param c
+	 *            the collection to be referred
+	 * @return this
+	 */
+	public ParamList addReference(Collection<?> c) {
+		if (c.isEmpty())
+			return this;
+		segments.add(new CollectionRef(c));
+		size += c.size();
+		modCount++;
+		return this;
+	}
+
+	/**
+	 * Adds the reference to the specified array as the elements of this list.
+	 * The array is not copied.
+	 *
+	 * @param array
+	 *            the array to be referred
+	 * @return this
+	 */
+	public ParamList addArrayReference(Object array) {
+		ArrayRef ref = new ArrayRef(array);
+		if (ref.size == 0)
+			return this;
+		segments.add(ref);
+		size += ref.size;
+		modCount++;
+		return this;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Object get(int index) {
+		checkIndex(index);
+		int local = index;
+		for (Segment seg : segments) {
+			if (local < seg.size()) {
+				if (!seg.isRandomAccess())
+					return expand().get(index);
+				return seg.get(local);
+			}
+			local -= seg.size();
+		}
+		throw new IndexOutOfBoundsException();
+	}
+
+	@Override
+	public Object set(int index, Object element) {
+		checkIndex(index);
+		int local = index;
+		for (Segment seg : segments) {
+			if (local < seg.size()) {
+				if (seg instanceof Values)
+					return ((Values) seg).list.set(local, element);
+				break;
+			}
+			local -= seg.size();
+		}
+		return expand().set(index, element);
+	}
+
+	@Override
+	public boolean add(Object e) {
+		lastValues().list.add(e);
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public void add(int index, Object element) {
+		if (index == size) {
+			add(element);
+			return;
+		}
+		expand().add(index, element);
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public Object remove(int index) {
+		checkIndex(index);
+		Object removed = expand().remove(index);
+		size--;
+		modCount++;
+		return removed;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Object> c) {
+		if (c.isEmpty())
+			return false;
+		if (c instanceof ParamList) {
+			for (Segment seg : ((ParamList) c).segments) {
+				if (seg instanceof Values)
+					lastValues().list.addAll(((Values) seg).list);
+				else
+					segments.add(seg);
+			}
+		} else {
+			lastValues().list.addAll(c);
+		}
+		size += c.size();
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		segments.clear();
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Iterator<Object> iterator() {
+		return new Iterator<Object>() {
+			int segIndex = 0;
+			Iterator<?> ite = null;
+
+			@Override
+			public boolean hasNext() {
+				while (ite == null || !ite.hasNext()) {
+					if (segIndex >= segments.size())
+						return false;
+					ite = segments.get(segIndex++).iterator();
+				}
+				return true;
+			}
+
+			@Override
+			public Object next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return ite.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException(
+						"Iterator#remove is not supported.");
+			}
+		};
+	}
+
+	private Values lastValues() {
+		if (!segments.isEmpty()) {
+			Segment last = segments.get(segments.size() - 1);
+			if (last instanceof Values)
+				return (Values) last;
+		}
+		Values values = new Values();
+		segments.add(values);
+		return values;
+	}
+
+	private List<Object> expand() {
+		if (segments.size() == 1 && segments.get(0) instanceof Values)
+			return ((Values) segments.get(0)).list;
+		Values values = new Values(size);
+		for (Segment seg : segments) {
+			Iterator<?> ite = seg.iterator();
+			while (ite.hasNext())
+				values.list.add(ite.next());
+		}
+		segments.clear();
+		segments.add(values);
+		return values.list;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+	}
+}
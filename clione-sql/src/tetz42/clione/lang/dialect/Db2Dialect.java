@@ -10,4 +10,9 @@ public class Db2Dialect extends Dialect {
 	public Pattern needLikeEscape() {
 		return escapePtn;
 	}
+
+	@Override
+	public boolean supportsRowValueComparison() {
+		return false;
+	}
 }
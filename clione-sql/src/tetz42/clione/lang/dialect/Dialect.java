@@ -1,10 +1,17 @@
 package tetz42.clione.lang.dialect;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Pattern;
 
+import tetz42.clione.SQLManager.SQLSet;
+
 public class Dialect {
 
 	private static final Pattern basicEscapePtn = Pattern.compile("([#%_])");
+	private static final Pattern rowLimitPtn = Pattern.compile(
+			"\\b(LIMIT|OFFSET|FETCH|ROWS|FOR)\\b", Pattern.CASE_INSENSITIVE);
 
 	public Pattern needLikeEscape() {
 		return basicEscapePtn;
@@ -17,4 +24,272 @@ public class Dialect {
 	public boolean backslashWorkAsEscape() {
 		return false;
 	}
+
+	/**
+	 * @return the maximum number of the parameters bound to a statement
+	 */
+	public int bindLimit() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return true if an insert statement can have multiple VALUES tuples
+	 */
+	public boolean supportsMultiRowValues() {
+		return true;
+	}
+
+	/**
+	 * Rewrites the insert/update statement so that it returns the values of
+	 * the key columns of the rows affected as its result set.
+	 *
+	 * @param sql
+	 *            the insert/update statement
+	 * @param keyColumns
+	 *            the names of the key columns, or null if not specified
+	 * @return the statement rewritten, or null if not supported
+	 */
+	public String returning(String sql, String[] keyColumns) {
+		return null;
+	}
+
+	/**
+	 * @return true if the row value comparison like '(A, B) &gt; (?, ?)' is
+	 *         supported
+	 */
+	public boolean supportsRowValueComparison() {
+		return true;
+	}
+
+	/**
+	 * Rewrites the select statement so that it selects the rows of the page
+	 * specified. The standard 'OFFSET ? ROWS FETCH NEXT ? ROWS ONLY' clause
+	 * is appended by default.
+	 *
+	 * @param sqlSet
+	 *            the select statement and its parameters
+	 * @param offset
+	 *            the number of the rows skipped
+	 * @param limit
+	 *            the maximum number of the rows selected
+	 * @return the statement rewritten and its parameters
+	 */
+	public SQLSet page(SQLSet sqlSet, long offset, int limit) {
+		if (offset == 0)
+			return append(sqlSet, " FETCH FIRST ? ROWS ONLY", limit);
+		return append(sqlSet, " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY", offset,
+				limit);
+	}
+
+	/**
+	 * Rewrites the select statement so that it selects the rows next to the
+	 * last key in the ascending order of the key columns, that is keyset
+	 * pagination. The statement is wrapped as below and then paged by
+	 * {@link Dialect#page(SQLSet, long, int)} with no offset:
+	 *
+	 * <pre>
+	 * SELECT * FROM (the statement) T_ WHERE (K1, K2) &gt; (?, ?) ORDER BY K1, K2
+	 * </pre>
+	 *
+	 * If the row value comparison is not supported, the predicate is
+	 * expanded to 'K1 &gt; ? OR K1 = ? AND K2 &gt; ?'. The top-level ORDER BY
+	 * clause of the statement is removed if it is safe.
+	 *
+	 * @param sqlSet
+	 *            the select statement and its parameters
+	 * @param keyColumns
+	 *            the names of the key columns
+	 * @param lastKey
+	 *            the key values of the last row of the previous page, or null
+	 *            for the first page
+	 * @param limit
+	 *            the maximum number of the rows selected
+	 * @return the statement rewritten and its parameters
+	 */
+	public SQLSet seek(SQLSet sqlSet, String[] keyColumns, Object[] lastKey,
+			int limit) {
+		List<Object> params = new ArrayList<Object>(sqlSet.params);
+		StringBuilder sb = new StringBuilder("SELECT * FROM (").append(
+				terminate(removeOrderBy(sqlSet.sql))).append(") T_");
+		if (lastKey != null) {
+			sb.append(" WHERE ");
+			if (keyColumns.length == 1) {
+				sb.append(keyColumns[0]).append(" > ?");
+				params.add(lastKey[0]);
+			} else if (supportsRowValueComparison()) {
+				sb.append('(').append(join(keyColumns, ", ")).append(") > (");
+				for (int i = 0; i < keyColumns.length; i++) {
+					sb.append(i == 0 ? "?" : ", ?");
+					params.add(lastKey[i]);
+				}
+				sb.append(')');
+			} else {
+				sb.append('(');
+				for (int i = 0; i < keyColumns.length; i++) {
+					if (i != 0)
+						sb.append(" OR ");
+					for (int j = 0; j < i; j++) {
+						sb.append(keyColumns[j]).append(" = ? AND ");
+						params.add(lastKey[j]);
+					}
+					sb.append(keyColumns[i]).append(" > ?");
+					params.add(lastKey[i]);
+				}
+				sb.append(')');
+			}
+		}
+		sb.append(" ORDER BY ").append(join(keyColumns, ", "));
+		return page(new SQLSet(sb.toString(), params), 0, limit);
+	}
+
+	/**
+	 * Wraps the select statement to count its rows as below:
+	 *
+	 * <pre>
+	 * SELECT COUNT(*) FROM (the statement) T_
+	 * </pre>
+	 *
+	 * The top-level ORDER BY clause of the statement is removed if it is
+	 * safe.
+	 *
+	 * @param sql
+	 *            the select statement
+	 * @return the count statement
+	 * @see Dialect#removeOrderBy(String)
+	 */
+	public String count(String sql) {
+		return "SELECT COUNT(*) FROM (" + terminate(removeOrderBy(sql))
+				+ ") T_";
+	}
+
+	/**
+	 * @param sqlSet
+	 *            the statement and its parameters
+	 * @param clause
+	 *            the clause to be appended
+	 * @param values
+	 *            the parameters of the clause
+	 * @return the statement with the clause and the parameters
+	 */
+	protected static SQLSet append(SQLSet sqlSet, String clause,
+			Object... values) {
+		List<Object> params = new ArrayList<Object>(sqlSet.params);
+		params.addAll(Arrays.asList(values));
+		return new SQLSet(terminate(sqlSet.sql) + clause, params);
+	}
+
+	/**
+	 * Breaks the line after the statement if its last line has a line
+	 * comment, so that the statement can be followed by another clause.
+	 *
+	 * @param sql
+	 *            the statement
+	 * @return the statement terminated
+	 */
+	protected static String terminate(String sql) {
+		return sql.lastIndexOf("--") > sql.lastIndexOf('\n') ? sql + "\n"
+				: sql;
+	}
+
+	/**
+	 * Finds the last ORDER BY clause of the statement, which is outside of
+	 * the parentheses, quotes and comments.
+	 *
+	 * @param sql
+	 *            the statement
+	 * @return the position of the ORDER keyword, or -1 if not found
+	 */
+	protected static int indexOfOrderBy(String sql) {
+		int found = -1;
+		int depth = 0;
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"') {
+				i = skipQuoted(sql, i);
+			} else if (sql.startsWith("--", i)) {
+				int end = sql.indexOf('\n', i);
+				i = end == -1 ? sql.length() : end + 1;
+			} else if (sql.startsWith("/*", i)) {
+				int end = sql.indexOf("*/", i + 2);
+				i = end == -1 ? sql.length() : end + 2;
+			} else if (c == '(') {
+				depth++;
+				i++;
+			} else if (c == ')') {
+				depth--;
+				i++;
+			} else if (Character.isJavaIdentifierStart(c)) {
+				int end = endOfWord(sql, i);
+				if (depth == 0 && isWord(sql, i, end, "ORDER")) {
+					int by = skipSpaces(sql, end);
+					if (isWord(sql, by, endOfWord(sql, by), "BY"))
+						found = i;
+				}
+				i = end;
+			} else {
+				i++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Removes the last top-level ORDER BY clause of the statement, unless the
+	 * rows are limited after the clause by LIMIT, OFFSET, FETCH and so on,
+	 * or locked by FOR UPDATE.
+	 *
+	 * @param sql
+	 *            the statement
+	 * @return the statement without the ORDER BY clause, or the statement
+	 *         itself if the clause is not found or can not be removed safely
+	 */
+	protected static String removeOrderBy(String sql) {
+		int pos = indexOfOrderBy(sql);
+		if (pos == -1)
+			return sql;
+		if (rowLimitPtn.matcher(sql.substring(pos)).find())
+			return sql;
+		return sql.substring(0, pos).trim();
+	}
+
+	private static String join(String[] words, String delimiter) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < words.length; i++) {
+			if (i != 0)
+				sb.append(delimiter);
+			sb.append(words[i]);
+		}
+		return sb.toString();
+	}
+
+	private static boolean isWord(String sql, int begin, int end, String word) {
+		return end - begin == word.length()
+				&& sql.regionMatches(true, begin, word, 0, word.length());
+	}
+
+	private static int endOfWord(String sql, int i) {
+		while (i < sql.length() && Character.isJavaIdentifierPart(sql.charAt(i)))
+			i++;
+		return i;
+	}
+
+	private static int skipSpaces(String sql, int i) {
+		while (i < sql.length() && Character.isWhitespace(sql.charAt(i)))
+			i++;
+		return i;
+	}
+
+	private static int skipQuoted(String sql, int i) {
+		char quote = sql.charAt(i);
+		for (i++; i < sql.length(); i++) {
+			if (sql.charAt(i) != quote)
+				continue;
+			if (i + 1 < sql.length() && sql.charAt(i + 1) == quote)
+				i++; // escaped quote
+			else
+				return i + 1;
+		}
+		return i;
+	}
 }
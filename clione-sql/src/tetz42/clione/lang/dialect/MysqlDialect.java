@@ -1,8 +1,22 @@
 package tetz42.clione.lang.dialect;
 
+import tetz42.clione.SQLManager.SQLSet;
+
 public class MysqlDialect extends Dialect{
 	@Override
 	public boolean backslashWorkAsEscape() {
 		return true;
 	}
+
+	@Override
+	public int bindLimit() {
+		return 65535;
+	}
+
+	@Override
+	public SQLSet page(SQLSet sqlSet, long offset, int limit) {
+		if (offset == 0)
+			return append(sqlSet, " LIMIT ?", limit);
+		return append(sqlSet, " LIMIT ? OFFSET ?", limit, offset);
+	}
 }
@@ -1,9 +1,44 @@
 package tetz42.clione.lang.dialect;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import tetz42.clione.SQLManager.SQLSet;
+
 public class OracleDialect extends Db2Dialect {
 
 	@Override
 	public int inLimit() {
 		return 1000;
 	}
+
+	@Override
+	public boolean supportsMultiRowValues() {
+		return false;
+	}
+
+	/**
+	 * Wraps the statement to filter the rows by ROWNUM as below:
+	 *
+	 * <pre>
+	 * SELECT * FROM (SELECT T_.*, ROWNUM RN_ FROM (the statement) T_ WHERE ROWNUM &lt;= ?) WHERE RN_ &gt; ?
+	 * </pre>
+	 *
+	 * Thus the result has the extra column RN_, the row number. If the offset
+	 * is zero, the statement is simply wrapped by 'WHERE ROWNUM &lt;= ?'.
+	 */
+	@Override
+	public SQLSet page(SQLSet sqlSet, long offset, int limit) {
+		List<Object> params = new ArrayList<Object>(sqlSet.params);
+		if (offset == 0) {
+			params.add(limit);
+			return new SQLSet("SELECT * FROM (" + terminate(sqlSet.sql)
+					+ ") WHERE ROWNUM <= ?", params);
+		}
+		params.add(offset + limit);
+		params.add(offset);
+		return new SQLSet("SELECT * FROM (SELECT T_.*, ROWNUM RN_ FROM ("
+				+ terminate(sqlSet.sql) + ") T_ WHERE ROWNUM <= ?) WHERE RN_ > ?",
+				params);
+	}
 }
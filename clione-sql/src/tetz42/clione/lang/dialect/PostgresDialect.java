@@ -1,8 +1,35 @@
 package tetz42.clione.lang.dialect;
 
+import tetz42.clione.SQLManager.SQLSet;
+
 public class PostgresDialect extends Dialect {
 	@Override
 	public boolean backslashWorkAsEscape() {
 		return true;
 	}
+
+	@Override
+	public int bindLimit() {
+		return 32767;
+	}
+
+	@Override
+	public String returning(String sql, String[] keyColumns) {
+		if (keyColumns == null || keyColumns.length == 0)
+			return null;
+		StringBuilder sb = new StringBuilder(sql).append(" RETURNING ");
+		for (int i = 0; i < keyColumns.length; i++) {
+			if (i != 0)
+				sb.append(", ");
+			sb.append(keyColumns[i]);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public SQLSet page(SQLSet sqlSet, long offset, int limit) {
+		if (offset == 0)
+			return append(sqlSet, " LIMIT ?", limit);
+		return append(sqlSet, " LIMIT ? OFFSET ?", limit, offset);
+	}
 }
@@ -2,6 +2,8 @@ package tetz42.clione.lang.dialect;
 
 import java.util.regex.Pattern;
 
+import tetz42.clione.SQLManager.SQLSet;
+
 public class SqlserverDialect extends Dialect {
 
 	protected static final Pattern escapePtn = Pattern.compile("([#%_\\[])");
@@ -10,4 +12,27 @@ public class SqlserverDialect extends Dialect {
 	public Pattern needLikeEscape() {
 		return escapePtn;
 	}
+
+	@Override
+	public int bindLimit() {
+		return 2100;
+	}
+
+	@Override
+	public boolean supportsRowValueComparison() {
+		return false;
+	}
+
+	/**
+	 * Appends 'OFFSET ? ROWS FETCH NEXT ? ROWS ONLY'. Since the clause
+	 * requires ORDER BY, 'ORDER BY (SELECT NULL)' is appended before it if the
+	 * statement has no ORDER BY clause.
+	 */
+	@Override
+	public SQLSet page(SQLSet sqlSet, long offset, int limit) {
+		String clause = " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+		if (indexOfOrderBy(sqlSet.sql) == -1)
+			clause = " ORDER BY (SELECT NULL)" + clause;
+		return append(sqlSet, clause, offset, limit);
+	}
 }
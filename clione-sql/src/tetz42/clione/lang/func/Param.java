@@ -4,10 +4,12 @@ import static tetz42.clione.common.ReflectionUtil.*;
 import static tetz42.clione.lang.ContextUtil.*;
 
 import java.lang.reflect.Array;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import tetz42.clione.lang.Instruction;
+import tetz42.clione.lang.NegativePredicate;
+import tetz42.clione.lang.ParamList;
 import tetz42.clione.util.ListWithDelim;
 import tetz42.clione.util.ParamMap;
 
@@ -15,6 +17,7 @@ public class Param extends ClioneFunction {
 
 	protected final String key;
 	protected final boolean isNegative;
+	private final String normalizedKey;
 
 	public Param(String key) {
 		this(key, false);
@@ -23,60 +26,79 @@ public class Param extends ClioneFunction {
 	public Param(String key, boolean isNegative) {
 		this.key = key;
 		this.isNegative = isNegative;
+		this.normalizedKey = normalize(key);
 	}
 
 	@Override
 	public Instruction perform(ParamMap paramMap) {
-		Instruction inst = genInstruction(paramMap.get(key));
+		Object val = normalizedKey != null ? paramMap
+				.getNormalized(normalizedKey) : paramMap.get(key);
+		Instruction inst = genInstruction(val);
 		return inst.next(getNextInstruction(paramMap));
 	}
 
+	private static String normalize(String key) {
+		try {
+			return ParamMap.normalizeKey(key);
+		} catch (RuntimeException e) {
+			// the unsupported key is reported when it is used.
+			return null;
+		}
+	}
+
 	private Instruction genInstruction(Object val) {
-		if (isNegative(val)) {
+		NegativePredicate negative = getNegative();
+		if (negative.isNegative(val)) {
 			return genInstruction(val, false);
 		} else if (val instanceof Iterable<?>) {
 			Iterable<?> ite = (Iterable<?>) val;
-			return genInstruction(ite);
+			return genInstruction(ite, negative);
 		} else if (val.getClass().isArray()
 				&& val.getClass().getComponentType() != Byte.TYPE) {
-			ArrayList<Object> params = new ArrayList<Object>();
 			int length = Array.getLength(val);
 			boolean isNum = true;
 			boolean status = false;
 			for (int i = 0; i < length; i++) {
 				Object e = Array.get(val, i);
 				isNum = isNum ? isNumber(e) : false;
-				status = status ? true : !isNegative(e);
-				params.add(e);
+				status = status ? true : !negative.isNegative(e);
 			}
-			return genInstruction(params, status, isNum);
+			return genInstruction(new ParamList().addArrayReference(val),
+					status, isNum);
 		} else {
 			return genInstruction(val, true);
 		}
 	}
 
 	private Instruction genInstruction(Object val, boolean status) {
-		ArrayList<Object> params = new ArrayList<Object>();
+		ParamList params = new ParamList();
 		params.add(val);
 		return genInstruction(params, status, isNumber(val));
 	}
 
-	private Instruction genInstruction(Iterable<?> ite) {
+	private Instruction genInstruction(Iterable<?> ite,
+			NegativePredicate negative) {
 		List<Object> params;
 		if (ListWithDelim.class.isInstance(ite)) {
 			ListWithDelim<Object> lwd = new ListWithDelim<Object>();
 			lwd.setDelim(((ListWithDelim<?>) ite).getDelim());
 			params = lwd;
+		} else if (ite instanceof Collection<?>) {
+			// the collection is referred, not copied.
+			params = null;
 		} else {
-			params = new ArrayList<Object>();
+			params = new ParamList();
 		}
 		boolean isNum = true;
 		boolean status = false;
 		for (Object e : ite) {
 			isNum = isNum ? isNumber(e) : false;
-			status = status ? true : !isNegative(e);
-			params.add(e);
+			status = status ? true : !negative.isNegative(e);
+			if (params != null)
+				params.add(e);
 		}
+		if (params == null)
+			params = new ParamList().addReference((Collection<?>) ite);
 		return genInstruction(params, status, isNum);
 	}
 
@@ -1,6 +1,8 @@
 package tetz42.clione.node;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import tetz42.clione.lang.Instruction;
 import tetz42.clione.util.ParamMap;
@@ -10,6 +12,12 @@ public class SQLNode implements INode{
 	public List<LineNode> nodes;
 	public String resourceInfo;
 
+	/**
+	 * The count statements derived from the statements this node generated,
+	 * keyed by the generated statements.
+	 */
+	public final Map<String, String> countSqlCache = new ConcurrentHashMap<String, String>();
+
 	@Override
 	public Instruction perform(ParamMap paramMap) {
 		LineNode root = new LineNode(0);
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import static tetz42.clione.common.ReflectionUtil.*;
+import static tetz42.clione.common.Util.*;
+import static tetz42.clione.util.ClioneUtil.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tetz42.clione.common.Function;
+import tetz42.clione.common.exception.WrapException;
+
+/**
+ * The compiled accessor of the fields of a class, used to convert a bean into
+ * {@link ParamMap} entries.<br>
+ * The instance is built once per class and cached. It holds the fields
+ * already made accessible and the keys derived from the field names, so the
+ * reflection is not repeated for every conversion.
+ *
+ * @author tetz
+ */
+final class BeanExtractor {
+
+	private static final ConcurrentHashMap<Class<?>, BeanExtractor> cache = newConcurrentMap();
+
+	static BeanExtractor get(final Class<?> clazz) {
+		return getOrNew(cache, clazz, new Function<BeanExtractor>() {
+			@Override
+			public BeanExtractor apply() {
+				return new BeanExtractor(clazz);
+			}
+		});
+	}
+
+	/**
+	 * true if the instance of the class is a SQL parameter value itself and
+	 * never inspected deeper.
+	 */
+	final boolean isTerminal;
+
+	/** the field names */
+	final String[] names;
+
+	/** the normalized field names, or null if the name is not supported */
+	final String[] keys;
+
+	/** true if the field value is a SQL parameter value regardless of its type */
+	final boolean[] terminals;
+
+	private final Field[] fields;
+	private final ConcurrentHashMap<String, int[]> pathCache = newConcurrentMap();
+	private volatile int flattenedSize = 0;
+
+	private BeanExtractor(Class<?> clazz) {
+		this.isTerminal = isJDBCSetterType(clazz) || isEachable(clazz);
+		List<Field> list = new ArrayList<Field>();
+		if (!isTerminal) {
+			for (Field f : getFields(clazz)) {
+				if (isSupported(f.getName()))
+					list.add(f);
+			}
+		}
+		int size = list.size();
+		this.fields = new Field[size];
+		this.names = new String[size];
+		this.keys = new String[size];
+		this.terminals = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			Field f = list.get(i);
+			f.setAccessible(true);
+			fields[i] = f;
+			names[i] = f.getName();
+			keys[i] = normalize(f.getName());
+			Class<?> type = f.getType();
+			terminals[i] = type.isPrimitive()
+					|| (Modifier.isFinal(type.getModifiers()) && (isJDBCSetterType(type)
+							|| isEachable(type)));
+		}
+	}
+
+	int size() {
+		return fields.length;
+	}
+
+	Object value(Object bean, int index) {
+		try {
+			return fields[index].get(bean);
+		} catch (IllegalAccessException e) {
+			throw new WrapException(e);
+		}
+	}
+
+	/**
+	 * Returns the indexes of the fields whose key is the specified key itself
+	 * or the head of the specified key followed by '_'.<br>
+	 * The indexes are ordered from the last field, because the value of the
+	 * later field wins when the bean is flattened.
+	 *
+	 * @param key
+	 *            the normalized key
+	 * @return the indexes of the fields
+	 */
+	int[] pathHeads(String key) {
+		int[] indexes = pathCache.get(key);
+		if (indexes != null)
+			return indexes;
+		int[] found = new int[keys.length];
+		int count = 0;
+		for (int i = keys.length - 1; i >= 0; i--) {
+			if (isPathHead(keys[i], key))
+				found[count++] = i;
+		}
+		indexes = Arrays.copyOf(found, count);
+		int[] putted = pathCache.putIfAbsent(key, indexes);
+		return putted != null ? putted : indexes;
+	}
+
+	static boolean isPathHead(String head, String key) {
+		if (head == null || head.length() == 0 || !key.startsWith(head))
+			return false;
+		return key.length() == head.length()
+				|| key.charAt(head.length()) == '_';
+	}
+
+	/**
+	 * @return the largest count of keys generated from an instance of the
+	 *         class so far
+	 */
+	int flattenedSize() {
+		return flattenedSize;
+	}
+
+	void flattenedSize(int size) {
+		if (size > flattenedSize)
+			flattenedSize = size;
+	}
+
+	static boolean isSupported(String key) {
+		return isNotEmpty(key) && key.indexOf('$') == -1;
+	}
+
+	private static String normalize(String name) {
+		try {
+			return ParamMap.normalizeKey(name);
+		} catch (RuntimeException e) {
+			// the unsupported key is reported when it is used.
+			return null;
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The ParamMap which inspects the bean lazily.<br>
+ * The value of a key is read from the bean only when the key is requested. For
+ * example, the key 'employee_period_from' is resolved as the field
+ * 'employee.period.from'. The bean is flattened in the same way as
+ * {@link ParamMap#object(Object)} only when the keys or the entries of this
+ * map are required, e.g. on iteration.<br>
+ * The values associated explicitly with this map take precedence over the
+ * values of the bean.
+ *
+ * @author tetz
+ */
+public class BeanParamMap extends ParamMap {
+
+	/***/
+	private static final long serialVersionUID = 2945360315402516614L;
+
+	private static final Object NOT_FOUND = new Object();
+
+	private Object bean;
+
+	/**
+	 * Generates the ParamMap which inspects the specified bean lazily.<br>
+	 * If the specified object is a map, it is inspected immediately.
+	 *
+	 * @param bean
+	 *            the object to be inspect
+	 */
+	public BeanParamMap(Object bean) {
+		if (bean == null || bean instanceof Map<?, ?>)
+			object(bean);
+		else
+			this.bean = bean;
+	}
+
+	@Override
+	public Object getNormalized(String normalizedKey) {
+		if (bean == null || super.containsKey(normalizedKey))
+			return super.getNormalized(normalizedKey);
+		Object value = resolve(bean, normalizedKey, 0,
+				Config.get().ENTITY_DEPTH_LIMIT);
+		return value == NOT_FOUND ? null : value;
+	}
+
+	@Override
+	public Object getOrDefault(Object key, Object defaultValue) {
+		Object value = get(key);
+		return value != null || containsKey(key) ? value : defaultValue;
+	}
+
+	@Override
+	public int size() {
+		flatten();
+		return super.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		flatten();
+		return super.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		flatten();
+		return super.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		flatten();
+		return super.containsValue(value);
+	}
+
+	@Override
+	public Object remove(Object key) {
+		flatten();
+		return super.remove(key);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		flatten();
+		return super.remove(key, value);
+	}
+
+	@Override
+	public void clear() {
+		bean = null;
+		super.clear();
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super String, ? super Object> action) {
+		flatten();
+		super.forEach(action);
+	}
+
+	@Override
+	public Object putIfAbsent(String key, Object value) {
+		flatten();
+		return super.putIfAbsent(key, value);
+	}
+
+	@Override
+	public boolean replace(String key, Object oldValue, Object newValue) {
+		flatten();
+		return super.replace(key, oldValue, newValue);
+	}
+
+	@Override
+	public Object replace(String key, Object value) {
+		flatten();
+		return super.replace(key, value);
+	}
+
+	@Override
+	public void replaceAll(
+			BiFunction<? super String, ? super Object, ? extends Object> function) {
+		flatten();
+		super.replaceAll(function);
+	}
+
+	@Override
+	public Object computeIfAbsent(String key,
+			Function<? super String, ? extends Object> mappingFunction) {
+		flatten();
+		return super.computeIfAbsent(key, mappingFunction);
+	}
+
+	@Override
+	public Object computeIfPresent(
+			String key,
+			BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		flatten();
+		return super.computeIfPresent(key, remappingFunction);
+	}
+
+	@Override
+	public Object compute(
+			String key,
+			BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		flatten();
+		return super.compute(key, remappingFunction);
+	}
+
+	@Override
+	public Object merge(
+			String key,
+			Object value,
+			BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		flatten();
+		return super.merge(key, value, remappingFunction);
+	}
+
+	@Override
+	public Set<String> keySet() {
+		flatten();
+		return super.keySet();
+	}
+
+	@Override
+	public Collection<Object> values() {
+		flatten();
+		return super.values();
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		flatten();
+		return super.entrySet();
+	}
+
+	private Object writeReplace() {
+		flatten();
+		ParamMap map = new ParamMap(super.size() * 4 / 3 + 1);
+		for (Map.Entry<String, Object> e : super.entrySet())
+			map.putNormalized(e.getKey(), e.getValue());
+		return map;
+	}
+
+	private void flatten() {
+		if (bean == null)
+			return;
+		Object src = bean;
+		bean = null;
+		for (Map.Entry<String, Object> e : ParamMap.of(src).entrySet()) {
+			if (!super.containsKey(e.getKey()))
+				putNormalized(e.getKey(), e.getValue());
+		}
+	}
+
+	private static Object resolve(Object obj, String key, int depth, int limit) {
+		if (obj == null)
+			return NOT_FOUND;
+		if (obj instanceof Map<?, ?>)
+			return resolve((Map<?, ?>) obj, key, depth, limit);
+		BeanExtractor extractor = BeanExtractor.get(obj.getClass());
+		if (extractor.isTerminal)
+			return NOT_FOUND;
+		for (int i : extractor.pathHeads(key)) {
+			Object value = extractor.value(obj, i);
+			int length = extractor.keys[i].length();
+			if (key.length() == length)
+				return value;
+			if (extractor.terminals[i] || depth >= limit)
+				continue;
+			Object found = resolve(value, key.substring(length + 1),
+					depth + 1, limit);
+			if (found != NOT_FOUND)
+				return found;
+		}
+		return NOT_FOUND;
+	}
+
+	private static Object resolve(Map<?, ?> map, String key, int depth,
+			int limit) {
+		Object result = NOT_FOUND;
+		for (Map.Entry<?, ?> e : map.entrySet()) {
+			String subKey = String.valueOf(e.getKey());
+			if (!BeanExtractor.isSupported(subKey))
+				continue;
+			subKey = normalizeKey(subKey);
+			if (!BeanExtractor.isPathHead(subKey, key))
+				continue;
+			if (key.length() == subKey.length()) {
+				result = e.getValue();
+			} else if (depth < limit) {
+				Object found = resolve(e.getValue(), key.substring(subKey
+						.length() + 1), depth + 1, limit);
+				if (found != NOT_FOUND)
+					result = found;
+			}
+		}
+		return result;
+	}
+}
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import tetz42.clione.OutParam;
 import tetz42.clione.common.Const;
 import tetz42.clione.common.exception.UnsupportedTypeException;
 import tetz42.clione.util.converter.ArrayConv;
@@ -51,9 +52,11 @@ import tetz42.clione.util.converter.IConv;
 import tetz42.clione.util.converter.InputStreamConv;
 import tetz42.clione.util.converter.IntConv;
 import tetz42.clione.util.converter.IntegerConv;
+import tetz42.clione.util.converter.LobParamConv;
 import tetz42.clione.util.converter.LongConv;
 import tetz42.clione.util.converter.LongPrimitiveConv;
 import tetz42.clione.util.converter.NClobConv;
+import tetz42.clione.util.converter.OutParamConv;
 import tetz42.clione.util.converter.ReaderConv;
 import tetz42.clione.util.converter.RefConv;
 import tetz42.clione.util.converter.SQLXMLConv;
@@ -92,6 +95,8 @@ public class ClioneUtil {
 		finalMap.put(Double.class, new DoubleConv());
 		finalMap.put(Double.TYPE, new DoublePrimitiveConv());
 		finalMap.put(URL.class, new URLConv());
+		finalMap.put(LobParam.class, new LobParamConv());
+		finalMap.put(OutParam.class, new OutParamConv());
 
 		Map<Class<?>, IConv> extendableMap = new LinkedHashMap<Class<?>, IConv>();
 		extendableMap.put(Timestamp.class, new TimestampConv());
@@ -151,6 +156,30 @@ public class ClioneUtil {
 				"--- resource ---", resourceInfo);
 	}
 
+	/**
+	 * Estimates the bytes of the heap the value retains.<br>
+	 * The estimation is rough, the object header and the fields of the common
+	 * JDBC value types, and is intended for the memory limits.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the estimated bytes
+	 */
+	public static long estimateSize(Object value) {
+		if (value == null)
+			return 0;
+		else if (value instanceof String)
+			return 40 + 2 * ((String) value).length();
+		else if (value instanceof byte[])
+			return 16 + ((byte[]) value).length;
+		else if (value instanceof Long || value instanceof Double)
+			return 24;
+		else if (value instanceof Number || value instanceof Boolean)
+			return 16;
+		else
+			return 64;
+	}
+
 	public static Object getJDBCData(Field f, ResultSet rs, int columnIndex)
 			throws SQLException {
 		try {
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The index of the column labels of a result set, shared by the
+ * {@link ResultMap} instances of the rows.<br>
+ * Each distinct label has a slot. If the same label appears several times,
+ * the slot holds the value of the last column, like
+ * {@link ResultMap#put(String, Object)} called for each column in order. The
+ * upper case labels for the case-insensitive lookup are computed only once.
+ *
+ * @author tetz
+ */
+public final class ColumnIndex {
+
+	private final String[] labels;
+	private final int[] slots;
+	private final Map<String, Integer> exactMap;
+	private final Map<String, Integer> upperMap;
+
+	/**
+	 * Generates the index of the specified column labels.
+	 *
+	 * @param columnLabels
+	 *            the column labels in the order of the columns
+	 */
+	public ColumnIndex(String... columnLabels) {
+		List<String> list = new ArrayList<String>(columnLabels.length);
+		this.slots = new int[columnLabels.length];
+		this.exactMap = new HashMap<String, Integer>(
+				columnLabels.length * 4 / 3 + 1);
+		this.upperMap = new HashMap<String, Integer>(
+				columnLabels.length * 4 / 3 + 1);
+		for (int i = 0; i < columnLabels.length; i++) {
+			String label = columnLabels[i];
+			Integer slot = exactMap.get(label);
+			if (slot == null) {
+				slot = list.size();
+				list.add(label);
+				exactMap.put(label, slot);
+			}
+			slots[i] = slot;
+			if (label != null)
+				upperMap.put(label.toUpperCase(), slot);
+		}
+		this.labels = list.toArray(new String[list.size()]);
+	}
+
+	/**
+	 * @return the number of the distinct labels
+	 */
+	public int size() {
+		return labels.length;
+	}
+
+	/**
+	 * @param slot
+	 *            the slot
+	 * @return the label of the slot
+	 */
+	public String label(int slot) {
+		return labels[slot];
+	}
+
+	/**
+	 * @param column
+	 *            the position of the column, starting from 0
+	 * @return the slot which holds the value of the column
+	 */
+	public int slotOf(int column) {
+		return slots[column];
+	}
+
+	/**
+	 * @param key
+	 *            the label
+	 * @return the slot of the label, or -1 if not found
+	 */
+	public int indexOf(Object key) {
+		Integer slot = exactMap.get(key);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * @param key
+	 *            the label
+	 * @return the slot of the label compared ignoring case, or -1 if not found
+	 */
+	public int indexOfIgnoreCase(String key) {
+		Integer slot = upperMap.get(key.toUpperCase());
+		return slot == null ? -1 : slot;
+	}
+}
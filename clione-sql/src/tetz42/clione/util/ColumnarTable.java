@@ -0,0 +1,595 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import static tetz42.clione.util.ClioneUtil.*;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tetz42.clione.exception.ResultLimitExceededException;
+
+/**
+ * The column-oriented table of a result set.<br>
+ * The values of each column are held in an array typed from
+ * ResultSetMetaData, instead of an object per row:<br>
+ *
+ * <pre>
+ * 	TINYINT, SMALLINT, INTEGER           -&gt; {@link IntColumn}, int[]
+ * 	BIGINT, unsigned INTEGER             -&gt; {@link LongColumn}, long[]
+ * 	unsigned BIGINT                      -&gt; {@link ObjectColumn}, Object[]
+ * 	NUMERIC, DECIMAL without scale       -&gt; {@link IntColumn} or {@link LongColumn} by the precision
+ * 	REAL, FLOAT, DOUBLE                  -&gt; {@link DoubleColumn}, double[]
+ * 	CHAR, VARCHAR and their variants     -&gt; {@link StringColumn}, dictionary encoded int[]
+ * 	any other type                       -&gt; {@link ObjectColumn}, Object[]
+ * </pre>
+ *
+ * The null values are recorded in the bitmap of each column.
+ *
+ * @author tetz
+ */
+public class ColumnarTable {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Reads all of the rest rows of the result set into a new table.<br>
+	 * The values are read through the converters of the column types.
+	 *
+	 * @param rs
+	 *            the result set
+	 * @return the table
+	 * @throws SQLException
+	 */
+	public static ColumnarTable read(ResultSet rs) throws SQLException {
+		return read(rs, 0);
+	}
+
+	/**
+	 * Reads all of the rest rows of the result set into a new table.<br>
+	 * The values are read through the converters of the column types.
+	 *
+	 * @param rs
+	 *            the result set
+	 * @param maxRows
+	 *            the maximum number of the rows read, zero means no limit
+	 * @return the table
+	 * @throws SQLException
+	 * @throws ResultLimitExceededException
+	 *             the result set has more rows than maxRows
+	 */
+	public static ColumnarTable read(ResultSet rs, int maxRows)
+			throws SQLException {
+		ResultSetMetaData md = rs.getMetaData();
+		Column[] columns = new Column[md.getColumnCount()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = newColumn(md, i + 1);
+		}
+		int rows = 0;
+		while (rs.next()) {
+			if (maxRows > 0 && rows >= maxRows)
+				throw new ResultLimitExceededException(
+						"The result exceeded the limit of " + maxRows
+								+ " rows.");
+			for (int i = 0; i < columns.length; i++) {
+				columns[i].read(rs, i + 1, rows);
+			}
+			rows++;
+		}
+		for (Column column : columns) {
+			column.trim(rows);
+		}
+		return new ColumnarTable(columns, rows);
+	}
+
+	private final Column[] columns;
+	private final int rowCount;
+	private final Map<String, Integer> exactMap = new HashMap<String, Integer>();
+	private final Map<String, Integer> upperMap = new HashMap<String, Integer>();
+
+	private ColumnarTable(Column[] columns, int rowCount) {
+		this.columns = columns;
+		this.rowCount = rowCount;
+		for (int i = columns.length - 1; i >= 0; i--) {
+			exactMap.put(columns[i].label, i);
+			upperMap.put(columns[i].label.toUpperCase(), i);
+		}
+	}
+
+	/**
+	 * @return the number of the rows
+	 */
+	public int rowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return the number of the columns
+	 */
+	public int columnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * @param index
+	 *            the position of the column, starting from 0
+	 * @return the column
+	 */
+	public Column column(int index) {
+		return columns[index];
+	}
+
+	/**
+	 * Returns the first column of the specified label. The label is compared
+	 * ignoring case if no column matches exactly.
+	 *
+	 * @param label
+	 *            the column label
+	 * @return the column, or null if not found
+	 */
+	public Column column(String label) {
+		Integer index = exactMap.get(label);
+		if (index == null)
+			index = upperMap.get(label.toUpperCase());
+		return index == null ? null : columns[index];
+	}
+
+	/**
+	 * @param label
+	 *            the column label
+	 * @return the column of int values
+	 * @throws ClassCastException
+	 *             the column is not an int column
+	 * @see ColumnarTable#column(String)
+	 */
+	public IntColumn intColumn(String label) {
+		return (IntColumn) column(label);
+	}
+
+	/**
+	 * @param label
+	 *            the column label
+	 * @return the column of long values
+	 * @throws ClassCastException
+	 *             the column is not a long column
+	 * @see ColumnarTable#column(String)
+	 */
+	public LongColumn longColumn(String label) {
+		return (LongColumn) column(label);
+	}
+
+	/**
+	 * @param label
+	 *            the column label
+	 * @return the column of double values
+	 * @throws ClassCastException
+	 *             the column is not a double column
+	 * @see ColumnarTable#column(String)
+	 */
+	public DoubleColumn doubleColumn(String label) {
+		return (DoubleColumn) column(label);
+	}
+
+	/**
+	 * @param label
+	 *            the column label
+	 * @return the column of string values
+	 * @throws ClassCastException
+	 *             the column is not a string column
+	 * @see ColumnarTable#column(String)
+	 */
+	public StringColumn stringColumn(String label) {
+		return (StringColumn) column(label);
+	}
+
+	/**
+	 * Generates the ResultMap of the specified row.
+	 *
+	 * @param row
+	 *            the row number, starting from 0
+	 * @return the ResultMap
+	 */
+	public ResultMap row(int row) {
+		ResultMap map = new ResultMap();
+		for (Column column : columns) {
+			map.put(column.label, column.get(row));
+		}
+		return map;
+	}
+
+	private static Column newColumn(ResultSetMetaData md, int i)
+			throws SQLException {
+		String label = md.getColumnLabel(i);
+		switch (md.getColumnType(i)) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+			return new IntColumn(label);
+		case Types.INTEGER:
+			// INT UNSIGNED of MySQL exceeds int.
+			return md.isSigned(i) ? new IntColumn(label) : new LongColumn(
+					label);
+		case Types.BIGINT:
+			// BIGINT UNSIGNED of MySQL exceeds long.
+			return md.isSigned(i) ? new LongColumn(label) : new ObjectColumn(
+					label);
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			if (md.getScale(i) != 0 || md.getPrecision(i) <= 0
+					|| md.getPrecision(i) > 18)
+				return new ObjectColumn(label);
+			return md.getPrecision(i) <= 9 ? new IntColumn(label)
+					: new LongColumn(label);
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return new DoubleColumn(label);
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.NCHAR:
+		case Types.NVARCHAR:
+		case Types.LONGNVARCHAR:
+			return new StringColumn(label);
+		default:
+			return new ObjectColumn(label);
+		}
+	}
+
+	/**
+	 * The column of the table.
+	 */
+	public static abstract class Column {
+
+		private final String label;
+		private final BitSet nulls = new BitSet();
+
+		Column(String label) {
+			this.label = label;
+		}
+
+		/**
+		 * @return the column label
+		 */
+		public String label() {
+			return label;
+		}
+
+		/**
+		 * @param row
+		 *            the row number, starting from 0
+		 * @return true if the value of the row is null
+		 */
+		public boolean isNull(int row) {
+			return nulls.get(row);
+		}
+
+		/**
+		 * @return the number of the null values
+		 */
+		public int nullCount() {
+			return nulls.cardinality();
+		}
+
+		/**
+		 * @return the bitmap of the null values, indexed by the row number
+		 */
+		public BitSet nulls() {
+			return (BitSet) nulls.clone();
+		}
+
+		/**
+		 * Returns the value of the row as an object.
+		 *
+		 * @param row
+		 *            the row number, starting from 0
+		 * @return the value, or null
+		 */
+		public abstract Object get(int row);
+
+		abstract void read(ResultSet rs, int index, int row)
+				throws SQLException;
+
+		abstract void trim(int size);
+
+		void setNull(int row) {
+			nulls.set(row);
+		}
+
+		static int grow(int length) {
+			return length + (length >> 1);
+		}
+	}
+
+	/**
+	 * The column of int values.
+	 */
+	public static final class IntColumn extends Column {
+
+		private int[] values = new int[INITIAL_CAPACITY];
+
+		IntColumn(String label) {
+			super(label);
+		}
+
+		/**
+		 * @param row
+		 *            the row number, starting from 0
+		 * @return the value, or 0 if null
+		 */
+		public int getInt(int row) {
+			return values[row];
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : values[row];
+		}
+
+		/**
+		 * @return the sum of the values except null
+		 */
+		public long sum() {
+			long sum = 0;
+			for (int v : values) {
+				sum += v;
+			}
+			return sum;
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			if (row >= values.length)
+				values = Arrays.copyOf(values, grow(values.length));
+			Integer value = (Integer) getJDBCData(Integer.class, rs, index);
+			if (value == null)
+				setNull(row);
+			else
+				values[row] = value;
+		}
+
+		@Override
+		void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * The column of long values.
+	 */
+	public static final class LongColumn extends Column {
+
+		private long[] values = new long[INITIAL_CAPACITY];
+
+		LongColumn(String label) {
+			super(label);
+		}
+
+		/**
+		 * @param row
+		 *            the row number, starting from 0
+		 * @return the value, or 0 if null
+		 */
+		public long getLong(int row) {
+			return values[row];
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : values[row];
+		}
+
+		/**
+		 * @return the sum of the values except null
+		 */
+		public long sum() {
+			long sum = 0;
+			for (long v : values) {
+				sum += v;
+			}
+			return sum;
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			if (row >= values.length)
+				values = Arrays.copyOf(values, grow(values.length));
+			Long value = (Long) getJDBCData(Long.class, rs, index);
+			if (value == null)
+				setNull(row);
+			else
+				values[row] = value;
+		}
+
+		@Override
+		void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * The column of double values.
+	 */
+	public static final class DoubleColumn extends Column {
+
+		private double[] values = new double[INITIAL_CAPACITY];
+
+		DoubleColumn(String label) {
+			super(label);
+		}
+
+		/**
+		 * @param row
+		 *            the row number, starting from 0
+		 * @return the value, or 0 if null
+		 */
+		public double getDouble(int row) {
+			return values[row];
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : values[row];
+		}
+
+		/**
+		 * @return the sum of the values except null
+		 */
+		public double sum() {
+			double sum = 0;
+			for (double v : values) {
+				sum += v;
+			}
+			return sum;
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			if (row >= values.length)
+				values = Arrays.copyOf(values, grow(values.length));
+			Double value = (Double) getJDBCData(Double.class, rs, index);
+			if (value == null)
+				setNull(row);
+			else
+				values[row] = value;
+		}
+
+		@Override
+		void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * The column of string values, encoded by the dictionary of the distinct
+	 * values.
+	 */
+	public static final class StringColumn extends Column {
+
+		private int[] codes = new int[INITIAL_CAPACITY];
+		private final List<String> dictionary = new ArrayList<String>();
+		private final Map<String, Integer> codeMap = new HashMap<String, Integer>();
+
+		StringColumn(String label) {
+			super(label);
+		}
+
+		/**
+		 * @param row
+		 *            the row number, starting from 0
+		 * @return the value, or null
+		 */
+		public String getString(int row) {
+			return isNull(row) ? null : dictionary.get(codes[row]);
+		}
+
+		@Override
+		public Object get(int row) {
+			return getString(row);
+		}
+
+		/**
+		 * @param row
+		 *            the row number, starting from 0
+		 * @return the code of the value in the dictionary, or -1 if null
+		 */
+		public int code(int row) {
+			return isNull(row) ? -1 : codes[row];
+		}
+
+		/**
+		 * @param value
+		 *            the value
+		 * @return the code of the value in the dictionary, or -1 if the column
+		 *         has no such value
+		 */
+		public int codeOf(String value) {
+			Integer code = codeMap.get(value);
+			return code == null ? -1 : code;
+		}
+
+		/**
+		 * @return the distinct values of the column, indexed by the code
+		 */
+		public List<String> dictionary() {
+			return Collections.unmodifiableList(dictionary);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			if (row >= codes.length)
+				codes = Arrays.copyOf(codes, grow(codes.length));
+			String value = (String) getJDBCData(String.class, rs, index);
+			if (value == null) {
+				setNull(row);
+				return;
+			}
+			Integer code = codeMap.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add(value);
+				codeMap.put(value, code);
+			}
+			codes[row] = code;
+		}
+
+		@Override
+		void trim(int size) {
+			codes = Arrays.copyOf(codes, size);
+		}
+	}
+
+	/**
+	 * The column of the values of any other type.
+	 */
+	public static final class ObjectColumn extends Column {
+
+		private Object[] values = new Object[INITIAL_CAPACITY];
+
+		ObjectColumn(String label) {
+			super(label);
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			if (row >= values.length)
+				values = Arrays.copyOf(values, grow(values.length));
+			Object value = rs.getObject(index);
+			if (value == null)
+				setNull(row);
+			else
+				values[row] = value;
+		}
+
+		@Override
+		void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -6,27 +6,35 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
 
 import tetz42.clione.common.IOUtil;
 
 public class Config {
 
-    private static volatile Config config;
+    private static final AtomicReference<Config> config = new AtomicReference<Config>();
 
+    /**
+     * Returns the configuration loaded from 'clione.properties'.<br>
+     * No lock is acquired. If several threads load the configuration at the
+     * same time, only one of the instances loaded is used. Even if
+     * {@link #clear()} is called meanwhile, null is never returned.
+     *
+     * @return the configuration
+     */
     public static Config get() {
-        Config local = config;
-        if (local == null) {
-            synchronized (Config.class) {
-                if (null == (local = config)) {
-                    config = local = new Config();
-                }
-            }
+        Config local = config.get();
+        while (local == null) {
+            Config loaded = new Config();
+            if (config.compareAndSet(null, loaded))
+                return loaded;
+            local = config.get();
         }
         return local;
     }
 
     public static void clear() {
-        config = null;
+        config.set(null);
     }
 
     private Properties prop;
@@ -37,6 +45,12 @@ public class Config {
     public final int SQLFILE_CACHETIME = getNum("SQLFILE_CACHETIME", 0);
     public final int TAB_SIZE = getNum("TAB_SIZE", 4);
     public final int ENTITY_DEPTH_LIMIT = getNum("ENTITY_DEPTH_LIMIT", 8);;
+    public final int BATCH_SIZE = getNum("BATCH_SIZE", 1000);
+    // not applied to exportCsv and transferLob, which do not hold the rows
+    public final int MAX_ROWS = getNum("MAX_ROWS", 0);
+    // applied to the rows held as objects only, not to findAllColumnar,
+    // findAllSpilling, exportCsv and transferLob
+    public final long MAX_BYTES = getLong("MAX_BYTES", 0L);
     public final List<String> CONVERTERS = getStrList("CONVERTERS");
 
     private Config() {
@@ -69,6 +83,11 @@ public class Config {
         return s != null ? Integer.parseInt(s) : defaultValue;
     }
 
+    private long getLong(String key, long defaultValue) {
+        String s = prop().getProperty(key);
+        return s != null ? Long.parseLong(s) : defaultValue;
+    }
+
     private List<String> getStrList(String key) {
         ArrayList<String> list = new ArrayList<String>();
         int i = 0;
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import tetz42.clione.util.CsvOptions.Quote;
+
+/**
+ * Writes the rows of a result set as CSV.<br>
+ * Each column is read by the getter of its type, like ResultSet#getInt(int)
+ * for INTEGER, and appended to the line buffer directly. No object is
+ * generated for a row, and the buffer is encoded into the reused byte
+ * buffer. The text values are quoted as {@link CsvOptions} specifies, and
+ * the quote characters in them are doubled.
+ *
+ * @author tetz
+ */
+public abstract class CsvExporter {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * Writes all of the rest rows of the result set into the writer.
+	 *
+	 * @param rs
+	 *            the result set
+	 * @param options
+	 *            the format
+	 * @param writer
+	 *            the writer, which is flushed but not closed
+	 * @return the number of the rows written
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static long export(ResultSet rs, CsvOptions options,
+			final Writer writer) throws SQLException, IOException {
+		return new CsvExporter(rs, options) {
+			private final char[] chars = new char[BUFFER_SIZE];
+
+			@Override
+			void write(boolean end) throws IOException {
+				for (int i = 0; i < sb.length(); i += chars.length) {
+					int len = Math.min(chars.length, sb.length() - i);
+					sb.getChars(i, i + len, chars, 0);
+					writer.write(chars, 0, len);
+				}
+				sb.setLength(0);
+				if (end)
+					writer.flush();
+			}
+		}.writeAll();
+	}
+
+	/**
+	 * Writes all of the rest rows of the result set into the output stream.
+	 *
+	 * @param rs
+	 *            the result set
+	 * @param options
+	 *            the format
+	 * @param out
+	 *            the output stream, which is flushed but not closed
+	 * @return the number of the rows written
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static long export(ResultSet rs, CsvOptions options,
+			OutputStream out) throws SQLException, IOException {
+		long rows = export(rs, options, Channels.newChannel(out));
+		out.flush();
+		return rows;
+	}
+
+	/**
+	 * Writes all of the rest rows of the result set into the channel.
+	 *
+	 * @param rs
+	 *            the result set
+	 * @param options
+	 *            the format
+	 * @param channel
+	 *            the channel, which is not closed
+	 * @return the number of the rows written
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static long export(ResultSet rs, CsvOptions options,
+			final WritableByteChannel channel) throws SQLException,
+			IOException {
+		final CharsetEncoder encoder = options.charset().newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		return new CsvExporter(rs, options) {
+			private final ByteBuffer bytes = ByteBuffer
+					.allocate((int) (BUFFER_SIZE * encoder.maxBytesPerChar()));
+
+			@Override
+			void write(boolean end) throws IOException {
+				CharBuffer in = CharBuffer.wrap(sb);
+				CoderResult result;
+				do {
+					result = encoder.encode(in, bytes, end);
+					drain();
+				} while (result.isOverflow());
+				if (end) {
+					while (encoder.flush(bytes).isOverflow())
+						drain();
+					drain();
+				}
+				sb.delete(0, in.position());
+			}
+
+			private void drain() throws IOException {
+				bytes.flip();
+				while (bytes.hasRemaining())
+					channel.write(bytes);
+				bytes.clear();
+			}
+		}.writeAll();
+	}
+
+	final StringBuilder sb = new StringBuilder(BUFFER_SIZE * 2);
+	private final ResultSet rs;
+	private final CsvOptions options;
+	private final ResultSetMetaData md;
+
+	private CsvExporter(ResultSet rs, CsvOptions options) throws SQLException {
+		this.rs = rs;
+		this.options = options;
+		this.md = rs.getMetaData();
+	}
+
+	/**
+	 * Writes the buffer into the destination and clears the buffer.
+	 *
+	 * @param end
+	 *            true if this is the last call
+	 */
+	abstract void write(boolean end) throws IOException;
+
+	long writeAll() throws SQLException, IOException {
+		int columnCount = md.getColumnCount();
+		int[] types = new int[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			types[i] = md.getColumnType(i + 1);
+			// the unsigned values are read by the wider getter.
+			if (!md.isSigned(i + 1)) {
+				if (types[i] == Types.INTEGER)
+					types[i] = Types.BIGINT;
+				else if (types[i] == Types.BIGINT)
+					types[i] = Types.DECIMAL;
+			}
+		}
+		if (options.header) {
+			for (int i = 0; i < columnCount; i++) {
+				if (i != 0)
+					sb.append(options.delimiter);
+				appendText(md.getColumnLabel(i + 1));
+			}
+			sb.append(options.lineSeparator);
+		}
+		long rows = 0;
+		while (rs.next()) {
+			for (int i = 0; i < columnCount; i++) {
+				if (i != 0)
+					sb.append(options.delimiter);
+				appendColumn(types[i], i + 1);
+			}
+			sb.append(options.lineSeparator);
+			rows++;
+			if (sb.length() >= BUFFER_SIZE)
+				write(false);
+		}
+		write(true);
+		return rows;
+	}
+
+	private void appendColumn(int type, int i) throws SQLException {
+		switch (type) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			int intValue = rs.getInt(i);
+			if (!rs.wasNull()) {
+				openNumber();
+				sb.append(intValue);
+				closeNumber();
+				return;
+			}
+			break;
+		case Types.BIGINT:
+			long longValue = rs.getLong(i);
+			if (!rs.wasNull()) {
+				openNumber();
+				sb.append(longValue);
+				closeNumber();
+				return;
+			}
+			break;
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			double doubleValue = rs.getDouble(i);
+			if (!rs.wasNull()) {
+				openNumber();
+				sb.append(doubleValue);
+				closeNumber();
+				return;
+			}
+			break;
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			BigDecimal decimal = rs.getBigDecimal(i);
+			if (decimal != null) {
+				openNumber();
+				sb.append(decimal.toPlainString());
+				closeNumber();
+				return;
+			}
+			break;
+		case Types.BIT:
+		case Types.BOOLEAN:
+			boolean booleanValue = rs.getBoolean(i);
+			if (!rs.wasNull()) {
+				openNumber();
+				sb.append(booleanValue);
+				closeNumber();
+				return;
+			}
+			break;
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+		case Types.BLOB:
+			byte[] bytes = rs.getBytes(i);
+			if (bytes != null) {
+				openNumber();
+				for (byte b : bytes) {
+					sb.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+				}
+				closeNumber();
+				return;
+			}
+			break;
+		default:
+			String text = rs.getString(i);
+			if (text != null) {
+				appendText(text);
+				return;
+			}
+		}
+		sb.append(options.nullValue);
+	}
+
+	private void openNumber() {
+		if (options.quote == Quote.ALL)
+			sb.append(options.quoteChar);
+	}
+
+	private void closeNumber() {
+		if (options.quote == Quote.ALL)
+			sb.append(options.quoteChar);
+	}
+
+	private void appendText(String text) {
+		char quote = options.quoteChar;
+		if (options.quote == Quote.MINIMAL && !needsQuote(text)) {
+			sb.append(text);
+			return;
+		}
+		sb.append(quote);
+		int begin = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == quote) {
+				sb.append(text, begin, i + 1).append(quote);
+				begin = i + 1;
+			}
+		}
+		sb.append(text, begin, text.length()).append(quote);
+	}
+
+	private boolean needsQuote(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == options.delimiter || c == options.quoteChar || c == '\r'
+					|| c == '\n')
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * The format of the CSV and TSV files.<br>
+ * By default, the values are separated by comma, the line is separated by
+ * CRLF, the first line is the header of the column labels, the text values
+ * are quoted by '"' and the numeric values are not, like below:
+ *
+ * <pre>
+ * "id","name","age"
+ * 0,"Takao Kawada",35
+ * </pre>
+ *
+ * The settings are specified in the fluent style:
+ *
+ * <pre>
+ * CsvOptions.tsv().header(false).charset(&quot;Windows-31J&quot;)
+ * </pre>
+ *
+ * @author tetz
+ */
+public class CsvOptions {
+
+	/**
+	 * The values to be quoted.
+	 */
+	public static enum Quote {
+		/** All of the values and the labels. */
+		ALL,
+		/** The values except the numbers and the booleans. */
+		NON_NUMERIC,
+		/** The values containing the delimiter, the quote or the line break. */
+		MINIMAL
+	}
+
+	/**
+	 * @return the options of CSV
+	 */
+	public static CsvOptions csv() {
+		return new CsvOptions();
+	}
+
+	/**
+	 * @return the options of TSV, which quotes the values only when needed
+	 */
+	public static CsvOptions tsv() {
+		return new CsvOptions().delimiter('\t').quote(Quote.MINIMAL);
+	}
+
+	char delimiter = ',';
+	char quoteChar = '"';
+	Quote quote = Quote.NON_NUMERIC;
+	String lineSeparator = "\r\n";
+	boolean header = true;
+	Charset charset = Charset.forName("UTF-8");
+	String nullValue = "";
+
+	/**
+	 * @param delimiter
+	 *            the separator of the values
+	 * @return this
+	 */
+	public CsvOptions delimiter(char delimiter) {
+		this.delimiter = delimiter;
+		return this;
+	}
+
+	/**
+	 * @param quoteChar
+	 *            the character to quote the values
+	 * @return this
+	 */
+	public CsvOptions quoteChar(char quoteChar) {
+		this.quoteChar = quoteChar;
+		return this;
+	}
+
+	/**
+	 * @param quote
+	 *            the values to be quoted
+	 * @return this
+	 */
+	public CsvOptions quote(Quote quote) {
+		this.quote = quote;
+		return this;
+	}
+
+	/**
+	 * @param lineSeparator
+	 *            the separator of the lines
+	 * @return this
+	 */
+	public CsvOptions lineSeparator(String lineSeparator) {
+		this.lineSeparator = lineSeparator;
+		return this;
+	}
+
+	/**
+	 * @param header
+	 *            true if the first line is the header of the column labels
+	 * @return this
+	 */
+	public CsvOptions header(boolean header) {
+		this.header = header;
+		return this;
+	}
+
+	/**
+	 * @param charset
+	 *            the charset of the bytes
+	 * @return this
+	 */
+	public CsvOptions charset(Charset charset) {
+		this.charset = charset;
+		return this;
+	}
+
+	/**
+	 * @param charsetName
+	 *            the name of the charset of the bytes
+	 * @return this
+	 */
+	public CsvOptions charset(String charsetName) {
+		return charset(Charset.forName(charsetName));
+	}
+
+	/**
+	 * @param nullValue
+	 *            the text of null, which is never quoted
+	 * @return this
+	 */
+	public CsvOptions nullValue(String nullValue) {
+		this.nullValue = nullValue;
+		return this;
+	}
+
+	/**
+	 * @return the separator of the values
+	 */
+	public char delimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * @return the character to quote the values
+	 */
+	public char quoteChar() {
+		return quoteChar;
+	}
+
+	/**
+	 * @return the values to be quoted
+	 */
+	public Quote quote() {
+		return quote;
+	}
+
+	/**
+	 * @return the separator of the lines
+	 */
+	public String lineSeparator() {
+		return lineSeparator;
+	}
+
+	/**
+	 * @return true if the first line is the header of the column labels
+	 */
+	public boolean header() {
+		return header;
+	}
+
+	/**
+	 * @return the charset of the bytes
+	 */
+	public Charset charset() {
+		return charset;
+	}
+
+	/**
+	 * @return the text of null
+	 */
+	public String nullValue() {
+		return nullValue;
+	}
+}
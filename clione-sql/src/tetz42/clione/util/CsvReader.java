@@ -0,0 +1,191 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of CSV in the format of {@link CsvOptions}.<br>
+ * The quoted values can contain the delimiters, the line breaks and the
+ * doubled quote characters. The unquoted value equal to the null text of the
+ * options is read as null, and the blank lines are skipped.
+ *
+ * @author tetz
+ */
+public class CsvReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Opens the file through the buffered file channel.
+	 *
+	 * @param file
+	 *            the CSV file
+	 * @param options
+	 *            the format
+	 * @return the reader
+	 * @throws IOException
+	 */
+	public static CsvReader open(Path file, CsvOptions options)
+			throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		return new CsvReader(Channels.newReader(channel, options.charset()
+				.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT), BUFFER_SIZE),
+				options);
+	}
+
+	private final Reader reader;
+	private final CsvOptions options;
+	private final char[] buf = new char[BUFFER_SIZE];
+	private int pos = 0;
+	private int len = 0;
+
+	private final StringBuilder field = new StringBuilder();
+	private final StringBuilder record = new StringBuilder();
+	private long line = 1;
+	private long recordLine = 0;
+
+	/**
+	 * @param reader
+	 *            the reader of CSV
+	 * @param options
+	 *            the format
+	 */
+	public CsvReader(Reader reader, CsvOptions options) {
+		this.reader = reader;
+		this.options = options;
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return the values of the record, or null if no record is left
+	 * @throws IOException
+	 */
+	public String[] next() throws IOException {
+		int c;
+		while ((c = peek()) == '\r' || c == '\n')
+			readLineBreak();
+		if (c == -1)
+			return null;
+		recordLine = line;
+		record.setLength(0);
+		List<String> values = new ArrayList<String>();
+		while (true) {
+			values.add(readValue());
+			c = peek();
+			if (c == options.delimiter) {
+				record.append((char) read());
+				continue;
+			}
+			if (c != -1)
+				readLineBreak();
+			return values.toArray(new String[values.size()]);
+		}
+	}
+
+	/**
+	 * @return the text of the record read last, without the line break
+	 */
+	public String record() {
+		return record.toString();
+	}
+
+	/**
+	 * @return the line number where the record read last begins
+	 */
+	public long lineNumber() {
+		return recordLine;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private String readValue() throws IOException {
+		field.setLength(0);
+		boolean quoted = false;
+		int c = peek();
+		if (c == options.quoteChar) {
+			quoted = true;
+			record.append((char) read());
+			while (true) {
+				c = read();
+				if (c == -1)
+					throw new IOException("The quote is not closed, line: "
+							+ recordLine);
+				record.append((char) c);
+				if (c == '\n')
+					line++;
+				if (c != options.quoteChar) {
+					field.append((char) c);
+				} else if (peek() == options.quoteChar) {
+					record.append((char) read());
+					field.append((char) c);
+				} else {
+					break;
+				}
+			}
+		}
+		while ((c = peek()) != -1 && c != options.delimiter && c != '\r'
+				&& c != '\n') {
+			record.append((char) read());
+			field.append((char) c);
+		}
+		String value = field.toString();
+		if (!quoted && value.equals(options.nullValue))
+			return null;
+		return value;
+	}
+
+	private void readLineBreak() throws IOException {
+		if (read() == '\r' && peek() == '\n')
+			read();
+		line++;
+	}
+
+	private int peek() throws IOException {
+		if (pos == len && !fill())
+			return -1;
+		return buf[pos];
+	}
+
+	private int read() throws IOException {
+		if (pos == len && !fill())
+			return -1;
+		return buf[pos++];
+	}
+
+	private boolean fill() throws IOException {
+		len = reader.read(buf, 0, buf.length);
+		pos = 0;
+		if (len > 0)
+			return true;
+		len = 0;
+		return false;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * The SQL parameter of a LOB value passed as a stream with its length.<br>
+ * The stream is set by PreparedStatement#setBinaryStream(int, InputStream,
+ * long) or PreparedStatement#setCharacterStream(int, Reader, long), so the
+ * driver can send the data without buffering it to find the length. For
+ * example:
+ *
+ * <pre>
+ * sqlManager.useSQL(&quot;INSERT INTO DOCUMENT (ID, DATA) VALUES (/* id *&#47;1, /* data *&#47;'')&quot;)
+ * 		.update(params(&quot;id&quot;, 1).$(&quot;data&quot;, LobParam.binary(in, size)));
+ * </pre>
+ *
+ * The stream is not closed by Clione-SQL.
+ *
+ * @author tetz
+ */
+public final class LobParam {
+
+	/**
+	 * @param in
+	 *            the stream of the binary data
+	 * @param length
+	 *            the number of the bytes
+	 * @return the parameter
+	 */
+	public static LobParam binary(InputStream in, long length) {
+		return new LobParam(in, null, length);
+	}
+
+	/**
+	 * @param reader
+	 *            the reader of the character data
+	 * @param length
+	 *            the number of the characters
+	 * @return the parameter
+	 */
+	public static LobParam character(Reader reader, long length) {
+		return new LobParam(null, reader, length);
+	}
+
+	private final InputStream stream;
+	private final Reader reader;
+	private final long length;
+
+	private LobParam(InputStream stream, Reader reader, long length) {
+		if (length < 0)
+			throw new IllegalArgumentException(
+					"The length must not be negative: " + length);
+		this.stream = stream;
+		this.reader = reader;
+		this.length = length;
+	}
+
+	/**
+	 * @return the stream of the binary data, or null
+	 */
+	public InputStream getStream() {
+		return stream;
+	}
+
+	/**
+	 * @return the reader of the character data, or null
+	 */
+	public Reader getReader() {
+		return reader;
+	}
+
+	/**
+	 * @return the length of the data
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return "LobParam(" + (stream != null ? "binary" : "character")
+				+ ", length=" + length + ")";
+	}
+}
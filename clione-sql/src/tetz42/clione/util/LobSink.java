@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The destination of the LOB column of each row, used by
+ * {@link tetz42.clione.SQLExecutor#transferLob(String, LobSink, java.util.Map)}.
+ * For example, writes each document into a file named by its id:
+ *
+ * <pre>
+ * sqlManager.useSQL(&quot;SELECT ID, DATA FROM DOCUMENT&quot;).transferLob(&quot;DATA&quot;,
+ * 		new LobSink() {
+ * 			public WritableByteChannel open(ResultMap row) throws IOException {
+ * 				return FileChannel.open(dir.resolve(row.get(&quot;ID&quot;) + &quot;.pdf&quot;),
+ * 						StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+ * 			}
+ * 		}, null);
+ * </pre>
+ *
+ * An OutputStream is passed by Channels#newChannel(OutputStream).
+ *
+ * @author tetz
+ */
+public interface LobSink {
+
+	/**
+	 * Opens the channel the LOB of the row is written into. The channel is
+	 * closed after the LOB is written. It is not called for a NULL LOB.
+	 *
+	 * @param row
+	 *            the other columns of the row, without the LOB column
+	 * @return the channel, or null to skip the row
+	 * @throws IOException
+	 */
+	WritableByteChannel open(ResultMap row) throws IOException;
+}
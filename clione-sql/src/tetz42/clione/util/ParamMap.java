@@ -15,17 +15,11 @@
  */
 package tetz42.clione.util;
 
-import static tetz42.clione.common.ReflectionUtil.*;
-import static tetz42.clione.util.ClioneUtil.*;
-
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import tetz42.clione.common.Util;
 import tetz42.clione.exception.DuplicateKeyException;
 
 /**
@@ -40,6 +34,74 @@ public class ParamMap extends HashMap<String, Object> {
 	public static final Pattern KEY_PTN = Pattern.compile("([\"-),-~ ])[ -~]*");
 	public static final Pattern SYMBOL_PTN = Pattern.compile("[^A-Za-z0-9]+");
 
+	/**
+	 * Generates ParamMap instance, inspects the specified object, and
+	 * associates its result.<br>
+	 * The instance is presized with the count of the keys generated from the
+	 * previous object of the same class.
+	 *
+	 * @param obj
+	 *            the object to be inspect
+	 * @return ParamMap instance
+	 * @see ParamMap#object(Object)
+	 */
+	public static ParamMap of(Object obj) {
+		if (obj == null || obj instanceof Map<?, ?>)
+			return new ParamMap().object(obj);
+		int size = BeanExtractor.get(obj.getClass()).flattenedSize();
+		return new ParamMap(size == 0 ? 16 : size * 4 / 3 + 1).object(obj);
+	}
+
+	public ParamMap() {
+		super();
+	}
+
+	public ParamMap(int initialCapacity) {
+		super(initialCapacity);
+	}
+
+	/**
+	 * Normalizes the specified key in the same way as {@link #get(Object)} and
+	 * {@link #put(String, Object)} do.<br>
+	 * The first character of the key is removed if it is a symbol. The key
+	 * must consist of printable ASCII characters, and must not start with '!',
+	 * '*' or '+'.<br>
+	 * The result can be passed to {@link #getNormalized(String)} many times
+	 * without normalizing the key again.
+	 *
+	 * @param key
+	 *            the key to be normalized
+	 * @return the normalized key
+	 * @see ParamMap#KEY_PTN
+	 * @see ParamMap#SYMBOL_PTN
+	 */
+	public static String normalizeKey(String key) {
+		if (key == null)
+			throw new NullPointerException("Parameter key must not be null.");
+		int length = key.length();
+		if (length == 0)
+			throw new UnsupportedOperationException("Unsupported key : " + key);
+		char first = key.charAt(0);
+		if (!isPrintable(first) || first == '!' || first == '*'
+				|| first == '+')
+			throw new UnsupportedOperationException("Unsupported key : " + key);
+		for (int i = 1; i < length; i++) {
+			if (!isPrintable(key.charAt(i)))
+				throw new UnsupportedOperationException("Unsupported key : "
+						+ key);
+		}
+		return isAlphanumeric(first) ? key : key.substring(1);
+	}
+
+	private static boolean isPrintable(char c) {
+		return ' ' <= c && c <= '~';
+	}
+
+	private static boolean isAlphanumeric(char c) {
+		return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z')
+				|| ('0' <= c && c <= '9');
+	}
+
 	/**
 	 * Returns the value to which the specified key is mapped, or null if this
 	 * map contains no mapping for the key. <br>
@@ -53,7 +115,26 @@ public class ParamMap extends HashMap<String, Object> {
 	 */
 	@Override
 	public Object get(Object key) {
-		return super.get(convKey(key));
+		return getNormalized(convKey(key));
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped, or null if this
+	 * map contains no mapping for the key. <br>
+	 * The key must be already normalized by {@link #normalizeKey(String)}.
+	 *
+	 * @param normalizedKey
+	 *            the normalized key whose associated value is to be returned
+	 * @return the value to which the specified key is mapped, or null if this
+	 *         map contains no mapping for the key
+	 * @see ParamMap#normalizeKey(String)
+	 */
+	public Object getNormalized(String normalizedKey) {
+		return super.get(normalizedKey);
+	}
+
+	Object putNormalized(String normalizedKey, Object value) {
+		return super.put(normalizedKey, value);
 	}
 
 	/**
@@ -347,37 +428,74 @@ public class ParamMap extends HashMap<String, Object> {
 	}
 
 	private ParamMap bean(Object bean, int depth) {
-		for (Field f : getFields(bean.getClass())) {
-			f.setAccessible(true);
-			setValue(f.getName(), getValue(bean, f), depth);
+		int before = size();
+		BeanExtractor extractor = BeanExtractor.get(bean.getClass());
+		int limit = Config.get().ENTITY_DEPTH_LIMIT;
+		for (int i = 0; i < extractor.size(); i++) {
+			String key = extractor.names[i];
+			Object value = extractor.value(bean, i);
+			checkDuplication(key, value);
+			this.put(key, value);
+			if (!extractor.terminals[i])
+				flatten(key, value, depth, limit);
 		}
+		extractor.flattenedSize(size() - before);
 		return this;
 	}
 
 	private void setValue(String key, Object obj, int depth) {
-		if (!isSupported(key))
+		if (!BeanExtractor.isSupported(key))
 			return;
+		checkDuplication(key, obj);
+		this.put(key, obj);
+		flatten(key, obj, depth, Config.get().ENTITY_DEPTH_LIMIT);
+	}
+
+	private void checkDuplication(String key, Object obj) {
 		if (containsKey(key))
 			throw new DuplicateKeyException("The key, '" + key
 					+ "' is duplicate. One of value:" + get(key) + ", Another:"
 					+ obj);
-		this.put(key, obj);
-		if (!isJDBCSetterType(obj) && !isEachable(obj)
-				&& depth < Config.get().ENTITY_DEPTH_LIMIT) {
-			ParamMap subMap;
-			if (obj instanceof Map<?, ?>) {
-				subMap = new ParamMap().map((Map<?, ?>) obj, depth + 1);
-			} else {
-				subMap = new ParamMap().bean(obj, depth + 1);
-			}
-			for (Entry<String, Object> e : subMap.entrySet()) {
-				if (!isSupported(e.getKey()))
+	}
+
+	/**
+	 * Associates the properties of the specified object with the keys
+	 * 'prefix_property', in one pass through the object graph.
+	 */
+	private void flatten(String prefix, Object obj, int depth, int limit) {
+		if (obj == null || depth >= limit)
+			return;
+		if (obj instanceof Map<?, ?>) {
+			for (Entry<?, ?> e : ((Map<?, ?>) obj).entrySet()) {
+				String subKey = String.valueOf(e.getKey());
+				if (!BeanExtractor.isSupported(subKey))
 					continue;
-				this.put(key + "_" + e.getKey(), e.getValue());
+				putFlattened(prefix, convKey(subKey), e.getValue(), false,
+						depth, limit);
 			}
+			return;
+		}
+		BeanExtractor extractor = BeanExtractor.get(obj.getClass());
+		if (extractor.isTerminal)
+			return;
+		for (int i = 0; i < extractor.size(); i++) {
+			String subKey = extractor.keys[i];
+			if (subKey == null)
+				subKey = convKey(extractor.names[i]);
+			putFlattened(prefix, subKey, extractor.value(obj, i),
+					extractor.terminals[i], depth, limit);
 		}
 	}
 
+	private void putFlattened(String prefix, String subKey, Object value,
+			boolean isTerminal, int depth, int limit) {
+		String key = prefix + "_" + subKey;
+		if (subKey.length() != 0)
+			this.put(key, value);
+		if (!isTerminal)
+			flatten(key, value, depth + 1, limit);
+	}
+
 	private String convKey(Object key) {
 		if (!String.class.isInstance(key))
 			throw new UnsupportedOperationException(
@@ -386,18 +504,6 @@ public class ParamMap extends HashMap<String, Object> {
 	}
 
 	private String convKey(String key) {
-		if (key == null)
-			throw new NullPointerException("Parameter key must not be null.");
-		Matcher keyM = KEY_PTN.matcher(key);
-		if (!keyM.matches())
-			throw new UnsupportedOperationException("Unsupported key : " + key);
-		Matcher symM = SYMBOL_PTN.matcher(keyM.group(1));
-		if (symM.matches())
-			key = key.substring(keyM.group(1).length());
-		return key;
-	}
-
-	private boolean isSupported(String key) {
-		return Util.isNotEmpty(key) && key.indexOf('$') == -1;
+		return normalizeKey(key);
 	}
 }
@@ -1,16 +1,59 @@
 package tetz42.clione.util;
 
 import java.math.BigDecimal;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+/**
+ * The map of the column labels and the values of a row.<br>
+ * The instance generated by {@link ResultMap#ResultMap(ColumnIndex, Object[])}
+ * holds the values in an array with the index of the labels shared by the
+ * rows of the same result set, instead of the hash table entries. It is
+ * turned into an ordinary map when a new key is associated or a key is
+ * removed.
+ */
 public class ResultMap extends LinkedHashMap<String, Object> {
 
 	/**  */
 	private static final long serialVersionUID = 8871788701353775458L;
 
-	private final Map<String, Object> upperMap = new HashMap<String, Object>();
+	private Map<String, Object> upperMap;
+
+	private transient ColumnIndex index;
+	private transient Object[] values;
+
+	public ResultMap() {
+	}
+
+	/**
+	 * Generates the ResultMap holding the values of a row with the column
+	 * index shared by the rows.
+	 *
+	 * @param index
+	 *            the column index
+	 * @param values
+	 *            the values of the slots of the index
+	 */
+	public ResultMap(ColumnIndex index, Object[] values) {
+		if (index.size() != values.length)
+			throw new IllegalArgumentException("The number of values, "
+					+ values.length + " does not match the column index, "
+					+ index.size());
+		this.index = index;
+		this.values = values;
+	}
 
 	/**
 	 * Returns the value to which the specified key is mapped, or null if this
@@ -24,8 +67,17 @@ public class ResultMap extends LinkedHashMap<String, Object> {
 	 */
 	@Override
 	public Object get(Object key) {
+		if (values != null) {
+			int i = index.indexOf(key);
+			Object val = i == -1 ? null : values[i];
+			if (val == null && key instanceof String) {
+				i = index.indexOfIgnoreCase((String) key);
+				val = i == -1 ? null : values[i];
+			}
+			return val;
+		}
 		Object val = super.get(key);
-		if (val == null && key instanceof String)
+		if (val == null && key instanceof String && upperMap != null)
 			val = upperMap.get(((String) key).toUpperCase());
 		return val;
 	}
@@ -49,10 +101,22 @@ public class ResultMap extends LinkedHashMap<String, Object> {
 	 */
 	@Override
 	public Object put(String key, Object value) {
+		if (values != null) {
+			int i = index.indexOf(key);
+			if (i != -1) {
+				Object pre = values[i];
+				values[i] = value;
+				return pre;
+			}
+			inflate();
+		}
 		Object preOrg = super.put(key, value);
 		Object preUpper = null;
-		if (key != null)
+		if (key != null) {
+			if (upperMap == null)
+				upperMap = new HashMap<String, Object>();
 			preUpper = upperMap.put(key.toUpperCase(), value);
+		}
 		return preOrg != null ? preOrg : preUpper;
 	}
 
@@ -90,4 +154,281 @@ public class ResultMap extends LinkedHashMap<String, Object> {
 		else
 			return (Integer) obj;
 	}
+
+	@Override
+	public Object getOrDefault(Object key, Object defaultValue) {
+		if (values == null)
+			return super.getOrDefault(key, defaultValue);
+		int i = index.indexOf(key);
+		return i == -1 ? defaultValue : values[i];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (values == null)
+			return super.containsKey(key);
+		return index.indexOf(key) != -1;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		if (values == null)
+			return super.containsValue(value);
+		for (Object v : values) {
+			if (value == null ? v == null : value.equals(v))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return values == null ? super.size() : values.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public Set<String> keySet() {
+		if (values == null)
+			return super.keySet();
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				if (values == null)
+					return ResultMap.super.keySet().iterator();
+				return new SlotIterator<String>() {
+					@Override
+					String get(int slot) {
+						return index.label(slot);
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public int size() {
+				return ResultMap.this.size();
+			}
+		};
+	}
+
+	@Override
+	public Collection<Object> values() {
+		if (values == null)
+			return super.values();
+		return new AbstractCollection<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				if (values == null)
+					return ResultMap.super.values().iterator();
+				return new SlotIterator<Object>() {
+					@Override
+					Object get(int slot) {
+						return values[slot];
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return ResultMap.this.size();
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		if (values == null)
+			return super.entrySet();
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				if (values == null)
+					return ResultMap.super.entrySet().iterator();
+				return new SlotIterator<Map.Entry<String, Object>>() {
+					@Override
+					Map.Entry<String, Object> get(final int slot) {
+						return new AbstractMap.SimpleEntry<String, Object>(
+								index.label(slot), values[slot]) {
+
+							/**  */
+							private static final long serialVersionUID = 1L;
+
+							@Override
+							public Object setValue(Object value) {
+								ResultMap.this.put(getKey(), value);
+								return super.setValue(value);
+							}
+						};
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return ResultMap.this.size();
+			}
+		};
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super String, ? super Object> action) {
+		if (values == null) {
+			super.forEach(action);
+			return;
+		}
+		for (int i = 0; i < values.length; i++) {
+			action.accept(index.label(i), values[i]);
+		}
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends Object> m) {
+		for (Map.Entry<? extends String, ? extends Object> e : m.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	}
+
+	@Override
+	public Object remove(Object key) {
+		inflate();
+		return super.remove(key);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		inflate();
+		return super.remove(key, value);
+	}
+
+	@Override
+	public void clear() {
+		inflate();
+		super.clear();
+		if (upperMap != null)
+			upperMap.clear();
+	}
+
+	@Override
+	public Object putIfAbsent(String key, Object value) {
+		inflate();
+		return super.putIfAbsent(key, value);
+	}
+
+	@Override
+	public boolean replace(String key, Object oldValue, Object newValue) {
+		inflate();
+		return super.replace(key, oldValue, newValue);
+	}
+
+	@Override
+	public Object replace(String key, Object value) {
+		inflate();
+		return super.replace(key, value);
+	}
+
+	@Override
+	public void replaceAll(
+			BiFunction<? super String, ? super Object, ? extends Object> function) {
+		inflate();
+		super.replaceAll(function);
+	}
+
+	@Override
+	public Object computeIfAbsent(String key,
+			Function<? super String, ? extends Object> mappingFunction) {
+		inflate();
+		return super.computeIfAbsent(key, mappingFunction);
+	}
+
+	@Override
+	public Object computeIfPresent(
+			String key,
+			BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		inflate();
+		return super.computeIfPresent(key, remappingFunction);
+	}
+
+	@Override
+	public Object compute(
+			String key,
+			BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		inflate();
+		return super.compute(key, remappingFunction);
+	}
+
+	@Override
+	public Object merge(
+			String key,
+			Object value,
+			BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		inflate();
+		return super.merge(key, value, remappingFunction);
+	}
+
+	@Override
+	public Object clone() {
+		if (values != null)
+			return new ResultMap(index, values.clone());
+		return super.clone();
+	}
+
+	private Object writeReplace() {
+		if (values == null)
+			return this;
+		ResultMap map = new ResultMap();
+		map.putAll(this);
+		return map;
+	}
+
+	/**
+	 * Moves the values from the array into the hash table.
+	 */
+	private void inflate() {
+		if (values == null)
+			return;
+		ColumnIndex index = this.index;
+		Object[] values = this.values;
+		this.index = null;
+		this.values = null;
+		for (int i = 0; i < values.length; i++) {
+			put(index.label(i), values[i]);
+		}
+	}
+
+	private abstract class SlotIterator<E> implements Iterator<E> {
+
+		private final int size = values.length;
+		private int slot = 0;
+
+		@Override
+		public boolean hasNext() {
+			return slot < size;
+		}
+
+		@Override
+		public E next() {
+			if (slot >= size)
+				throw new NoSuchElementException();
+			if (values == null)
+				throw new ConcurrentModificationException();
+			return get(slot++);
+		}
+
+		abstract E get(int slot);
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException(
+					"Iterator#remove is not supported.");
+		}
+	}
 }
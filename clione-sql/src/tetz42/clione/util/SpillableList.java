@@ -0,0 +1,511 @@
+/*
+ * Copyright 2012 tetsuo.ohta[at]gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tetz42.clione.util;
+
+import static tetz42.clione.util.ClioneUtil.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.Cleaner;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import tetz42.clione.common.exception.IORuntimeException;
+import tetz42.clione.common.exception.UnsupportedTypeException;
+import tetz42.clione.exception.ResultLimitExceededException;
+
+/**
+ * The read-only list of the rows of a result set, which holds the rows in the
+ * heap up to the byte budget and spills the rest into a temporary file.<br>
+ * The spilled rows are encoded in a compact binary format, a type tag and the
+ * value for each column, and decoded on access through a direct buffer of
+ * the file page. So a huge result degrades to the file I/O instead of
+ * exhausting the heap.<br>
+ * The temporary file is deleted by {@link SpillableList#close()}, or when
+ * the list is garbage collected.<br>
+ * Note: This class is not thread-safe.
+ *
+ * @author tetz
+ */
+public class SpillableList extends AbstractList<ResultMap> implements
+		RandomAccess, Closeable {
+
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private static final int PAGE_SIZE = 64 * 1024;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private static final byte NULL = 0;
+	private static final byte INT = 1;
+	private static final byte LONG = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte FLOAT = 4;
+	private static final byte SHORT = 5;
+	private static final byte BYTE = 6;
+	private static final byte BOOLEAN = 7;
+	private static final byte STRING = 8;
+	private static final byte BIG_DECIMAL = 9;
+	private static final byte BIG_INTEGER = 10;
+	private static final byte TIMESTAMP = 11;
+	private static final byte SQL_DATE = 12;
+	private static final byte TIME = 13;
+	private static final byte DATE = 14;
+	private static final byte BYTES = 15;
+	private static final byte SERIALIZABLE = 16;
+
+	/**
+	 * Reads all of the rest rows of the result set into a new list.<br>
+	 * The rows are held in the heap while their estimated size is within the
+	 * byte budget, and the rows after that are written into a temporary file.
+	 *
+	 * @param rs
+	 *            the result set
+	 * @param byteBudget
+	 *            the estimated bytes of the rows held in the heap
+	 * @return the list
+	 * @throws SQLException
+	 * @throws IORuntimeException
+	 *             failed to write the temporary file
+	 * @throws UnsupportedTypeException
+	 *             the value of the row to be spilled is not serializable
+	 */
+	public static SpillableList read(ResultSet rs, long byteBudget)
+			throws SQLException {
+		return read(rs, byteBudget, 0);
+	}
+
+	/**
+	 * Reads all of the rest rows of the result set into a new list.<br>
+	 * The rows are held in the heap while their estimated size is within the
+	 * byte budget, and the rows after that are written into a temporary file.
+	 * The BLOB and binary columns are read as byte[], the CLOB and long
+	 * character columns as String, and the ARRAY columns as the array of the
+	 * elements.
+	 *
+	 * @param rs
+	 *            the result set
+	 * @param byteBudget
+	 *            the estimated bytes of the rows held in the heap
+	 * @param maxRows
+	 *            the maximum number of the rows read, zero means no limit
+	 * @return the list
+	 * @throws SQLException
+	 * @throws IORuntimeException
+	 *             failed to write the temporary file
+	 * @throws UnsupportedTypeException
+	 *             the value of the row to be spilled is not serializable
+	 * @throws ResultLimitExceededException
+	 *             the result set has more rows than maxRows
+	 */
+	public static SpillableList read(ResultSet rs, long byteBudget,
+			int maxRows) throws SQLException {
+		ResultSetMetaData md = rs.getMetaData();
+		String[] labels = new String[md.getColumnCount()];
+		int[] types = new int[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = md.getColumnLabel(i + 1);
+			types[i] = md.getColumnType(i + 1);
+		}
+		SpillableList list = new SpillableList(new ColumnIndex(labels));
+		try {
+			long bytes = 0;
+			int rows = 0;
+			while (rs.next()) {
+				if (maxRows > 0 && rows++ >= maxRows)
+					throw new ResultLimitExceededException(
+							"The result exceeded the limit of " + maxRows
+									+ " rows.");
+				Object[] values = new Object[list.index.size()];
+				for (int i = 0; i < labels.length; i++) {
+					values[list.index.slotOf(i)] = getValue(rs, i + 1,
+							types[i]);
+				}
+				if (list.spill == null) {
+					bytes += estimate(values);
+					if (bytes <= byteBudget) {
+						list.heap.add(new ResultMap(list.index, values));
+						continue;
+					}
+					list.spill = new Spill();
+					list.cleanable = CLEANER.register(list, list.spill);
+				}
+				list.spill.write(values);
+			}
+			if (list.spill != null)
+				list.spill.flush();
+			return list;
+		} catch (IOException e) {
+			list.close();
+			throw new IORuntimeException("Failed to spill the rows.", e);
+		} catch (SQLException e) {
+			list.close();
+			throw e;
+		} catch (RuntimeException e) {
+			list.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the LOB and ARRAY columns by value, because their locators are
+	 * neither serializable nor valid after the cursor moves.
+	 */
+	private static Object getValue(ResultSet rs, int column, int type)
+			throws SQLException {
+		switch (type) {
+		case Types.BLOB:
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+			return rs.getBytes(column);
+		case Types.CLOB:
+		case Types.NCLOB:
+		case Types.LONGVARCHAR:
+		case Types.LONGNVARCHAR:
+		case Types.SQLXML:
+			return rs.getString(column);
+		case Types.ARRAY:
+			Array array = rs.getArray(column);
+			if (array == null)
+				return null;
+			try {
+				return array.getArray();
+			} finally {
+				array.free();
+			}
+		default:
+			return rs.getObject(column);
+		}
+	}
+
+	private final ColumnIndex index;
+	private final List<ResultMap> heap = new ArrayList<ResultMap>();
+	private Spill spill;
+	private Cleaner.Cleanable cleanable;
+
+	private SpillableList(ColumnIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * Returns the row at the specified position. The spilled row is decoded
+	 * from the temporary file as a new instance for each call.
+	 *
+	 * @param i
+	 *            the position of the row
+	 * @return the row
+	 * @throws IllegalStateException
+	 *             the spilled row is accessed after the list is closed
+	 */
+	@Override
+	public ResultMap get(int i) {
+		if (i < heap.size())
+			return heap.get(i);
+		if (spill == null || i >= size())
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+					+ size());
+		try {
+			return new ResultMap(index, spill.read(i - heap.size(), index
+					.size()));
+		} catch (IOException e) {
+			throw new IORuntimeException("Failed to read the spilled row.", e);
+		}
+	}
+
+	@Override
+	public int size() {
+		return heap.size() + (spill == null ? 0 : spill.rows);
+	}
+
+	/**
+	 * @return the number of the rows held in the heap
+	 */
+	public int heapRowCount() {
+		return heap.size();
+	}
+
+	/**
+	 * @return the number of the rows spilled into the temporary file
+	 */
+	public int spilledRowCount() {
+		return spill == null ? 0 : spill.rows;
+	}
+
+	/**
+	 * Deletes the temporary file. The spilled rows can not be accessed after
+	 * this method is called.
+	 */
+	@Override
+	public void close() {
+		if (cleanable != null)
+			cleanable.clean();
+	}
+
+	private static long estimate(Object[] values) {
+		long bytes = 96 + 4 * values.length;
+		for (Object value : values) {
+			bytes += estimateSize(value);
+		}
+		return bytes;
+	}
+
+	/**
+	 * The temporary file of the spilled rows. This is also the cleaning
+	 * action of the list, so it must not refer to the list.
+	 */
+	private static class Spill implements Runnable {
+
+		private final File file;
+		private final FileChannel channel;
+		private ByteBuffer buf = ByteBuffer.allocate(PAGE_SIZE);
+		private long[] offsets = new long[INITIAL_CAPACITY];
+		private int rows = 0;
+		private long position = 0;
+
+		private ByteBuffer page;
+		private long pageStart = 0;
+		private long pageEnd = 0;
+		private boolean closed = false;
+
+		Spill() throws IOException {
+			file = File.createTempFile("clione", ".spill");
+			file.deleteOnExit();
+			channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+
+		void write(Object[] values) throws IOException {
+			if (rows + 1 >= offsets.length)
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			offsets[rows] = position + buf.position();
+			for (Object value : values) {
+				encode(value);
+			}
+			rows++;
+			offsets[rows] = position + buf.position();
+			if (buf.position() >= PAGE_SIZE)
+				flush();
+		}
+
+		void flush() throws IOException {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				position += channel.write(buf, position);
+			}
+			buf.clear();
+		}
+
+		Object[] read(int row, int columns) throws IOException {
+			if (closed)
+				throw new IllegalStateException(
+						"The spilled rows are already deleted.");
+			long start = offsets[row];
+			long end = offsets[row + 1];
+			if (start < pageStart || end > pageEnd)
+				load(start, end);
+			ByteBuffer in = page.duplicate();
+			in.position((int) (start - pageStart));
+			Object[] values = new Object[columns];
+			for (int i = 0; i < columns; i++) {
+				values[i] = decode(in);
+			}
+			return values;
+		}
+
+		private void load(long start, long end) throws IOException {
+			int size = (int) Math.max(PAGE_SIZE, end - start);
+			if (page == null || page.capacity() < size)
+				page = ByteBuffer.allocateDirect(size);
+			page.clear();
+			page.limit((int) Math.min(size, position - start));
+			while (page.hasRemaining()) {
+				if (channel.read(page, start + page.position()) < 0)
+					break;
+			}
+			page.flip();
+			pageStart = start;
+			pageEnd = start + page.limit();
+		}
+
+		@Override
+		public void run() {
+			closed = true;
+			page = null;
+			try {
+				channel.close();
+			} catch (IOException ignore) {
+			}
+			try {
+				Files.deleteIfExists(file.toPath());
+			} catch (IOException ignore) {
+			}
+		}
+
+		private void ensure(int bytes) {
+			if (buf.remaining() >= bytes)
+				return;
+			ByteBuffer newBuf = ByteBuffer.allocate(Math.max(buf.capacity() * 2,
+					buf.position() + bytes));
+			buf.flip();
+			buf = newBuf.put(buf);
+		}
+
+		private void encode(Object value) throws IOException {
+			ensure(9);
+			if (value == null) {
+				buf.put(NULL);
+			} else if (value instanceof Integer) {
+				buf.put(INT).putInt((Integer) value);
+			} else if (value instanceof Long) {
+				buf.put(LONG).putLong((Long) value);
+			} else if (value instanceof Double) {
+				buf.put(DOUBLE).putDouble((Double) value);
+			} else if (value instanceof Float) {
+				buf.put(FLOAT).putFloat((Float) value);
+			} else if (value instanceof Short) {
+				buf.put(SHORT).putShort((Short) value);
+			} else if (value instanceof Byte) {
+				buf.put(BYTE).put((Byte) value);
+			} else if (value instanceof Boolean) {
+				buf.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+			} else if (value instanceof String) {
+				putBytes(STRING, ((String) value)
+						.getBytes(StandardCharsets.UTF_8));
+			} else if (value instanceof BigDecimal) {
+				BigDecimal dec = (BigDecimal) value;
+				buf.put(BIG_DECIMAL).putInt(dec.scale());
+				putBytes(dec.unscaledValue().toByteArray());
+			} else if (value instanceof BigInteger) {
+				putBytes(BIG_INTEGER, ((BigInteger) value).toByteArray());
+			} else if (value instanceof Timestamp) {
+				Timestamp ts = (Timestamp) value;
+				buf.put(TIMESTAMP).putLong(ts.getTime());
+				ensure(4);
+				buf.putInt(ts.getNanos());
+			} else if (value instanceof java.sql.Date) {
+				buf.put(SQL_DATE).putLong(((java.sql.Date) value).getTime());
+			} else if (value instanceof Time) {
+				buf.put(TIME).putLong(((Time) value).getTime());
+			} else if (value.getClass() == java.util.Date.class) {
+				buf.put(DATE).putLong(((java.util.Date) value).getTime());
+			} else if (value instanceof byte[]) {
+				putBytes(BYTES, (byte[]) value);
+			} else if (value instanceof Serializable) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				ObjectOutputStream oos = new ObjectOutputStream(out);
+				oos.writeObject(value);
+				oos.close();
+				putBytes(SERIALIZABLE, out.toByteArray());
+			} else {
+				throw new UnsupportedTypeException("The value of "
+						+ value.getClass().getName()
+						+ " can not be spilled. It is not serializable.");
+			}
+		}
+
+		private void putBytes(byte tag, byte[] bytes) {
+			buf.put(tag);
+			putBytes(bytes);
+		}
+
+		private void putBytes(byte[] bytes) {
+			ensure(4 + bytes.length);
+			buf.putInt(bytes.length).put(bytes);
+		}
+
+		private static Object decode(ByteBuffer in) throws IOException {
+			byte tag = in.get();
+			switch (tag) {
+			case NULL:
+				return null;
+			case INT:
+				return in.getInt();
+			case LONG:
+				return in.getLong();
+			case DOUBLE:
+				return in.getDouble();
+			case FLOAT:
+				return in.getFloat();
+			case SHORT:
+				return in.getShort();
+			case BYTE:
+				return in.get();
+			case BOOLEAN:
+				return in.get() != 0;
+			case STRING:
+				return new String(getBytes(in), StandardCharsets.UTF_8);
+			case BIG_DECIMAL:
+				int scale = in.getInt();
+				return new BigDecimal(new BigInteger(getBytes(in)), scale);
+			case BIG_INTEGER:
+				return new BigInteger(getBytes(in));
+			case TIMESTAMP:
+				Timestamp ts = new Timestamp(in.getLong());
+				ts.setNanos(in.getInt());
+				return ts;
+			case SQL_DATE:
+				return new java.sql.Date(in.getLong());
+			case TIME:
+				return new Time(in.getLong());
+			case DATE:
+				return new java.util.Date(in.getLong());
+			case BYTES:
+				return getBytes(in);
+			case SERIALIZABLE:
+				ObjectInputStream ois = new ObjectInputStream(
+						new ByteArrayInputStream(getBytes(in)));
+				try {
+					return ois.readObject();
+				} catch (ClassNotFoundException e) {
+					throw new IOException(e);
+				} finally {
+					ois.close();
+				}
+			default:
+				throw new IOException("Unknown type tag: " + tag);
+			}
+		}
+
+		private static byte[] getBytes(ByteBuffer in) {
+			byte[] bytes = new byte[in.getInt()];
+			in.get(bytes);
+			return bytes;
+		}
+	}
+}
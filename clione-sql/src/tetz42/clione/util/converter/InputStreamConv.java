@@ -1,5 +1,8 @@
 package tetz42.clione.util.converter;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -15,6 +18,30 @@ public class InputStreamConv implements IConv {
 	@Override
 	public void set(PreparedStatement stmt, Object param, int index)
 			throws SQLException {
-		stmt.setBinaryStream(index, (InputStream)param);
+		InputStream in = (InputStream) param;
+		set(stmt, in, lengthOf(in), index);
+	}
+
+	static void set(PreparedStatement stmt, InputStream in, long length,
+			int index) throws SQLException {
+		// the driver can send the stream without buffering if the length is
+		// known.
+		if (length < 0)
+			stmt.setBinaryStream(index, in);
+		else
+			stmt.setBinaryStream(index, in, length);
+	}
+
+	private static long lengthOf(InputStream in) {
+		if (in instanceof ByteArrayInputStream)
+			return ((ByteArrayInputStream) in).available();
+		if (in.getClass() == FileInputStream.class) {
+			try {
+				FileInputStream fin = (FileInputStream) in;
+				return fin.getChannel().size() - fin.getChannel().position();
+			} catch (IOException ignore) {
+			}
+		}
+		return -1;
 	}
 }
@@ -0,0 +1,27 @@
+package tetz42.clione.util.converter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import tetz42.clione.common.exception.UnsupportedTypeException;
+import tetz42.clione.util.LobParam;
+
+public class LobParamConv implements IConv {
+
+	@Override
+	public Object get(ResultSet rs, int index) throws SQLException {
+		throw new UnsupportedTypeException("The type("
+				+ LobParam.class.getName() + ") is for SQL parameters only.");
+	}
+
+	@Override
+	public void set(PreparedStatement stmt, Object param, int index)
+			throws SQLException {
+		LobParam lob = (LobParam) param;
+		if (lob.getStream() != null)
+			InputStreamConv.set(stmt, lob.getStream(), lob.getLength(), index);
+		else
+			ReaderConv.set(stmt, lob.getReader(), lob.getLength(), index);
+	}
+}
@@ -0,0 +1,34 @@
+package tetz42.clione.util.converter;
+
+import static tetz42.clione.util.ClioneUtil.*;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import tetz42.clione.OutParam;
+import tetz42.clione.common.exception.UnsupportedTypeException;
+
+public class OutParamConv implements IConv {
+
+	@Override
+	public Object get(ResultSet rs, int index) throws SQLException {
+		throw new UnsupportedTypeException("The type("
+				+ OutParam.class.getName() + ") is for SQL parameters only.");
+	}
+
+	@Override
+	public void set(PreparedStatement stmt, Object param, int index)
+			throws SQLException {
+		if (!(stmt instanceof CallableStatement))
+			throw new SQLException(
+					"The OUT parameter is available on SQLExecutor#call only. index:"
+							+ index);
+		OutParam<?> out = (OutParam<?>) param;
+		((CallableStatement) stmt).registerOutParameter(index, out
+				.getSqlType());
+		if (out.isInOut())
+			setJDBCData(stmt, out.get(), index);
+	}
+}
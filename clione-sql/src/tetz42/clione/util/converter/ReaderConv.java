@@ -15,6 +15,14 @@ public class ReaderConv implements IConv {
 	@Override
 	public void set(PreparedStatement stmt, Object param, int index)
 			throws SQLException {
-		stmt.setCharacterStream(index, (Reader)param);
+		set(stmt, (Reader) param, -1, index);
+	}
+
+	static void set(PreparedStatement stmt, Reader reader, long length,
+			int index) throws SQLException {
+		if (length < 0)
+			stmt.setCharacterStream(index, reader);
+		else
+			stmt.setCharacterStream(index, reader, length);
 	}
 }
@@ -5,7 +5,12 @@ import static org.junit.Assert.*;
 import static tetz42.clione.SQLManager.*;
 import static tetz42.test.Auty.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -19,6 +24,10 @@ import org.junit.Test;
 import tetz42.clione.common.IOUtil;
 import tetz42.clione.node.LineNodeTest;
 import tetz42.clione.util.Config;
+import tetz42.clione.util.LobParam;
+import tetz42.clione.util.LobSink;
+import tetz42.clione.util.ResultMap;
+import tetz42.clione.util.SpillableList;
 
 public class BlobTest {
 
@@ -77,6 +86,64 @@ public class BlobTest {
 				"crud_file_string");
 	}
 
+	@Test
+	public void transferLob_with_length() throws Exception {
+		SQLManager sqlManager = sqlManager();
+		byte[] data = IOUtil.toString(
+				LineNodeTest.class.getResourceAsStream("LineNodeTest.txt"),
+				"UTF-8").getBytes("UTF-8");
+
+		// insert with the length
+		int count = sqlManager
+				.useSQL("insert into blobtest (id, data) values (/* id */, /* data */)")
+				.update(params("id", 1).$("data", LobParam.binary(
+					new ByteArrayInputStream(data), data.length)));
+		assertThat(count, is(1));
+
+		// NULL LOB
+		count = sqlManager.useSQL(
+				"insert into blobtest (id, data) values (2, null)").update();
+		assertThat(count, is(1));
+
+		// write into the stream of the row, the NULL LOB is skipped
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long written = sqlManager.useSQL(
+				"select id, data from blobtest order by id").transferLob(
+				"data", new LobSink() {
+					@Override
+					public WritableByteChannel open(ResultMap row)
+							throws IOException {
+						assertThat(row.get("id"), is((Object) 1));
+						assertThat(row.containsKey("data"), is(false));
+						return Channels.newChannel(out);
+					}
+				}, null);
+		assertThat(written, is(1L));
+		assertThat(out.toByteArray(), is(data));
+	}
+
+	@Test
+	public void findAllSpilling_with_blob() throws Exception {
+		SQLManager sqlManager = sqlManager();
+		byte[] data = "spilled blob".getBytes("UTF-8");
+		SQLExecutor insert = sqlManager
+				.useSQL("insert into blobtest (id, data) values (/* id */, /* data */)");
+		insert.update(params("id", 1).$("data", new ByteArrayInputStream(data)));
+		insert.update(params("id", 2).$("data", new ByteArrayInputStream(data)));
+
+		// the rows are spilled with the BLOB read as byte[]
+		SpillableList list = sqlManager.useSQL(
+				"select id, data from blobtest order by id").findAllSpilling(
+				params(), 1);
+		try {
+			assertThat(list.spilledRowCount(), is(2));
+			assertThat((byte[]) list.get(0).get("data"), is(data));
+			assertThat((byte[]) list.get(1).get("data"), is(data));
+		} finally {
+			list.close();
+		}
+	}
+
 	// This test case need not be performed every time, so comment out this.
 	// @Test
 	// public void crud_javafile() throws FileNotFoundException {
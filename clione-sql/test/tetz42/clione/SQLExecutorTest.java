@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -65,6 +66,19 @@ public class SQLExecutorTest {
 		setThreadConnection(null);
 	}
 
+	@Test
+	public void toLongArray_with_null_key() {
+		long[] keys = SQLExecutor.toLongArray(Arrays.asList(1L, null, 3L));
+		assertThat(keys, is(new long[] { 1L, 0L, 3L }));
+	}
+
+	@Test
+	public void partitionSize_of_full_range() {
+		assertThat(RangeSpliterator.partitionSize(Long.MIN_VALUE,
+				Long.MAX_VALUE, 4), is(1L << 62));
+		assertThat(RangeSpliterator.partitionSize(0, 10, 3), is(4L));
+	}
+
 	@Test
 	public void findAll_by_dto_param() throws IOException, SQLException {
 		SQLExecutor exe = sqlManager().useFile(getClass(), "Select.sql");
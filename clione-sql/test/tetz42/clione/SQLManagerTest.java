@@ -21,23 +21,51 @@ import static tetz42.clione.SQLManager.*;
 import static tetz42.test.Auty.*;
 import static tetz42.util.ObjDumper4j.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
+
+import tetz42.clione.common.Function;
 import tetz42.clione.common.exception.InvalidParameterException;
 import tetz42.clione.common.exception.SQLRuntimeException;
 import tetz42.clione.exception.ConnectionNotFoundException;
+import tetz42.clione.exception.ResultLimitExceededException;
+import tetz42.clione.util.ColumnarTable;
+import tetz42.clione.util.CsvOptions;
+import tetz42.clione.util.ParamMap;
 import tetz42.clione.util.ResultMap;
+import tetz42.clione.util.SpillableList;
 
 public class SQLManagerTest {
 
@@ -139,6 +167,310 @@ public class SQLManagerTest {
 		assertEqualsWithFile(list, getClass(), "findAll_by_no_param");
 	}
 
+	@Test
+	public void findAll_by_dataSource() throws IOException, SQLException {
+		final SQLManager manager = sqlManager(dataSource());
+
+		List<Tameshi> list = manager.useFile(getClass(), "Select.sql")
+				.findAll(Tameshi.class, params("$age", 31));
+		assertEqualsWithFile(list, getClass(), "findAll_by_1_param");
+
+		list = manager.transaction(new Function<List<Tameshi>>() {
+			@Override
+			public List<Tameshi> apply() {
+				return manager.useFile(SQLManagerTest.class, "Select.sql")
+						.findAll(Tameshi.class, params("$age", 31));
+			}
+		});
+		assertEqualsWithFile(list, getClass(), "findAll_by_1_param");
+	}
+
+	@Test
+	public void parallel() throws IOException, SQLException {
+		SQLManager manager = sqlManager(dataSource());
+		Query<Tameshi> q1 = manager.useFile(getClass(), "Select.sql").query(
+				Tameshi.class, params("$age", 31));
+		Query<Tameshi> q2 = manager.useFile(getClass(), "Select.sql").query(
+				Tameshi.class, params("$age", 34));
+		manager.parallel(q1, q2);
+		assertEqualsWithFile(q1.getResult(), getClass(), "findAll_by_1_param");
+		assertEqualsWithFile(q2.getResult().get(0), getClass(),
+				"find_by_1_param");
+		assertThat(q1.getElapsedNanos() >= 0, is(true));
+	}
+
+	@Test
+	public void findAllAsync() throws Exception {
+		SQLExecutor man = sqlManager(dataSource()).useFile(getClass(),
+				"Select.sql");
+		List<Tameshi> list = man.queryTimeout(10).findAllAsync(Tameshi.class,
+				params("$age", 31)).get();
+		assertEqualsWithFile(list, getClass(), "findAll_by_1_param");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void findAllAsync_on_connection() throws Exception {
+		sqlManager(con).useFile(getClass(), "Select.sql").findAllAsync(
+				Tameshi.class, params("$age", 31));
+	}
+
+	@Test
+	public void findAsync_cancelled() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CompletableFuture<ResultMap> future = sqlManager(dataSource())
+				.useSQL("select sleep(10) as slept").executeOn(executor)
+				.findAsync(params());
+		Thread.sleep(500);
+		assertThat(future.cancel(true), is(true));
+
+		// Statement#cancel() stops the sleep, so the thread ends early.
+		executor.shutdown();
+		assertThat(executor.awaitTermination(5, TimeUnit.SECONDS), is(true));
+	}
+
+	@Test
+	public void findAsync_with_queryTimeout() throws Exception {
+		long start = System.nanoTime();
+		CompletableFuture<ResultMap> future = sqlManager(dataSource())
+				.useSQL("select sleep(10) as slept").queryTimeout(1)
+				.findAsync(params());
+		try {
+			future.get();
+			fail("The query timeout is not applied.");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause(), is(instanceOf(SQLRuntimeException.class)));
+		}
+		assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5,
+				is(true));
+	}
+
+	@Test
+	public void publisher_one_by_one() throws Exception {
+		SQLExecutor man = sqlManager(dataSource()).useFile(getClass(),
+				"Select.sql");
+		final List<Tameshi> list = new ArrayList<Tameshi>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		man.publisher(Tameshi.class, params("$age", 31)).subscribe(
+				new Flow.Subscriber<Tameshi>() {
+					private Flow.Subscription subscription;
+
+					@Override
+					public void onSubscribe(Flow.Subscription subscription) {
+						this.subscription = subscription;
+						subscription.request(1);
+					}
+
+					@Override
+					public void onNext(Tameshi item) {
+						list.add(item);
+						subscription.request(1);
+					}
+
+					@Override
+					public void onError(Throwable throwable) {
+						latch.countDown();
+					}
+
+					@Override
+					public void onComplete() {
+						latch.countDown();
+					}
+				});
+		latch.await();
+		assertEqualsWithFile(list, getClass(), "findAll_by_1_param");
+	}
+
+	@Test
+	public void publisher_request_exact_count() throws Exception {
+		SQLExecutor man = sqlManager(dataSource()).useFile(getClass(),
+				"Select.sql");
+		final int count = man.findAll(Tameshi.class, params("$age", 31))
+				.size();
+		final List<Tameshi> list = new ArrayList<Tameshi>();
+		final AtomicInteger completed = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(1);
+		man.publisher(Tameshi.class, params("$age", 31)).subscribe(
+				new Flow.Subscriber<Tameshi>() {
+					@Override
+					public void onSubscribe(Flow.Subscription subscription) {
+						subscription.request(count);
+					}
+
+					@Override
+					public void onNext(Tameshi item) {
+						list.add(item);
+					}
+
+					@Override
+					public void onError(Throwable throwable) {
+						latch.countDown();
+					}
+
+					@Override
+					public void onComplete() {
+						completed.incrementAndGet();
+						latch.countDown();
+					}
+				});
+		assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+		assertThat(completed.get(), is(1));
+		assertThat(list.size(), is(count));
+		assertThat(man.rs, is(nullValue()));
+	}
+
+	@Test
+	public void stream_by_1_param() throws Exception {
+		SQLExecutor man = sqlManager(con).useFile(getClass(), "Select.sql");
+		Stream<Tameshi> stream = man.stream(Tameshi.class, params("$age", 31));
+		try {
+			assertEqualsWithFile(stream.collect(Collectors.toList()),
+					getClass(), "findAll_by_1_param");
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void stream_closed_after_limit() throws Exception {
+		SQLExecutor man = sqlManager(con).useFile(getClass(), "Select.sql");
+		Stream<Tameshi> stream = man.stream(Tameshi.class, params("$age", 31));
+		ResultSet rs = man.rs;
+		try {
+			assertThat(stream.limit(1).count(), is(1L));
+			assertThat(rs.isClosed(), is(false));
+		} finally {
+			stream.close();
+		}
+		assertThat(rs.isClosed(), is(true));
+		assertThat(man.rs, is(nullValue()));
+		assertThat(man.findAll(Tameshi.class, params("$age", 31)).size(),
+				is(not(0)));
+	}
+
+	@Test
+	public void partitionedStream() throws Exception {
+		SQLExecutor man = sqlManager(dataSource()).useFile(getClass(),
+				"RangeSelect.sql");
+		List<Tameshi> expected = man.findAll(Tameshi.class, params("lo", 0)
+				.$("hi", 200));
+		Stream<Tameshi> stream = man.partitionedStream(Tameshi.class,
+				params(), 0, 200, 4);
+		try {
+			List<Tameshi> list = stream.collect(Collectors.toList());
+			assertThat(dumper(list).toString(), is(dumper(expected).toString()));
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static DataSource dataSource() {
+		ResourceBundle bundle = ResourceBundle.getBundle("db");
+		MysqlDataSource ds = new MysqlDataSource();
+		ds.setUrl(bundle.getString("url"));
+		ds.setUser(bundle.getString("user"));
+		ds.setPassword(bundle.getString("pass"));
+		return ds;
+	}
+
+	@Test
+	public void findAllColumnar_by_1_param() throws Exception {
+		SQLExecutor man = sqlManager(con).useFile(getClass(), "Select.sql");
+		List<ResultMap> list = man.findAll(params("$age", 31));
+		ColumnarTable table = man.findAllColumnar(params("$age", 31));
+		assertThat(table.rowCount(), is(list.size()));
+		for (int i = 0; i < list.size(); i++) {
+			assertThat(table.row(i).getString("name"), is(list.get(i)
+					.getString("name")));
+			assertThat(table.row(i).getInt("age"), is(31));
+		}
+	}
+
+	@Test
+	public void findAll_within_maxRows() throws Exception {
+		List<ResultMap> list = sqlManager(con).useFile(getClass(), "Select.sql")
+				.maxRows(2).findAll(params("$age", 31));
+		assertThat(list.size(), is(2));
+	}
+
+	@Test(expected = ResultLimitExceededException.class)
+	public void findAll_exceeding_maxRows() throws Exception {
+		sqlManager(con).useFile(getClass(), "Select.sql").maxRows(1).findAll(
+				params("$age", 31));
+	}
+
+	@Test
+	public void page_by_1_param() throws Exception {
+		List<ResultMap> list = sqlManager(con).useFile(getClass(), "Select.sql")
+				.page(1, 1).findAll(params("$age", 31));
+		assertThat(list.size(), is(1));
+	}
+
+	@Test
+	public void seek_by_1_param() throws Exception {
+		SQLExecutor man = sqlManager(con).useFile(getClass(), "Select.sql");
+		List<ResultMap> first = man.seek("id", null, 1).findAll(
+				params("$age", 31));
+		assertThat(first.size(), is(1));
+		List<ResultMap> second = man.seek("id", first.get(0).get("id"), 1)
+				.findAll(params("$age", 31));
+		assertThat(second.size(), is(1));
+		assertThat(second.get(0).getInt("id") > first.get(0).getInt("id"),
+				is(true));
+	}
+
+	@Test
+	public void exportCsv_all_people() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long rows = sqlManager(con).useSQL(
+				"SELECT id, name, age FROM people ORDER BY id").exportCsv(out,
+				CsvOptions.csv(), null);
+		assertThat(rows, is(5L));
+		assertThat(new String(out.toByteArray(), "UTF-8"), is(new String(Files
+				.readAllBytes(Paths.get("prop/people.csv")), "UTF-8")));
+	}
+
+	@Test
+	public void count_by_1_param() throws Exception {
+		SQLExecutor man = sqlManager(con).useFile(getClass(), "Select.sql");
+		List<ResultMap> list = man.findAll(params("$age", 31));
+		assertThat(man.page(0, 1).count(params("$age", 31)), is((long) list
+				.size()));
+		assertThat(man.getSql().startsWith("SELECT COUNT(*) FROM ("), is(true));
+	}
+
+	@Test
+	public void page_sql_by_dialect() throws Exception {
+		String sql = "SELECT * FROM people ORDER BY id";
+		SQLSet sqlSet = sqlManager(Product.MYSQL).useSQL(sql).page(40, 20)
+				.generateSQLSet();
+		assertThat(sqlSet.sql, is(sql + " LIMIT ? OFFSET ?"));
+		assertThat(sqlSet.params, is(Arrays.<Object> asList(20, 40L)));
+		sqlSet = sqlManager(Product.ORACLE).useSQL(sql).page(40, 20)
+				.generateSQLSet();
+		assertThat(sqlSet.sql, is("SELECT * FROM (SELECT T_.*, ROWNUM RN_ FROM ("
+				+ sql + ") T_ WHERE ROWNUM <= ?) WHERE RN_ > ?"));
+		sqlSet = sqlManager(Product.SQLSERVER).useSQL("SELECT * FROM people")
+				.seek(new String[] { "age", "id" }, new Object[] { 31, 5 }, 20)
+				.generateSQLSet();
+		assertThat(sqlSet.sql, is("SELECT * FROM (SELECT * FROM people) T_"
+				+ " WHERE (age > ? OR age = ? AND id > ?) ORDER BY age, id"
+				+ " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY"));
+	}
+
+	@Test
+	public void findAllSpilling_by_1_param() throws Exception {
+		SQLExecutor man = sqlManager(con).useFile(getClass(), "Select.sql");
+		List<ResultMap> list = man.findAll(params("$age", 31));
+		SpillableList spilled = man.findAllSpilling(params("$age", 31), 1);
+		try {
+			assertThat(spilled.heapRowCount(), is(0));
+			assertThat(spilled.spilledRowCount(), is(list.size()));
+			assertThat(spilled, is(list));
+		} finally {
+			spilled.close();
+		}
+	}
+
 	@Test(expected = SQLRuntimeException.class)
 	public void findAll_using_wrongSQL() throws IOException, SQLException {
 		SQLExecutor man = sqlManager(con).useFile(getClass(),
@@ -213,6 +545,115 @@ public class SQLManagerTest {
 		assertEqualsWithFile(list, getClass(), "update_by_age_31");
 	}
 
+	@Test
+	public void updateBatch_by_age_10_and_31() throws Exception {
+		setThreadConnection(con);
+		int[] counts = sqlManager().useFile(getClass(), "Update.sql")
+				.updateBatch(
+						Arrays.asList(params("$age", 10), params("$age", 31)));
+		assertThat(counts.length, is(2));
+		assertThat(counts[0], is(0));
+		assertThat(counts[1], is(2));
+		List<Tameshi> list = sqlManager().useFile(getClass(), "Select.sql")
+				.findAll(Tameshi.class);
+		assertEqualsWithFile(list, getClass(), "update_by_age_31");
+	}
+
+	@Test
+	public void bulkInsert() throws Exception {
+		setThreadConnection(con);
+		List<ParamMap> rows = new ArrayList<ParamMap>();
+		for (int i = 0; i < 5; i++)
+			rows.add(params("id", 100 + i).$("name", "Bulk" + i).$("age", 20));
+		int count = sqlManager().useFile(getClass(), "Insert.sql").bulkInsert(
+				rows, 2);
+		assertThat(count, is(5));
+		List<Tameshi> list = sqlManager().useFile(getClass(), "Select.sql")
+				.findAll(Tameshi.class, params("$age", 20));
+		assertThat(list.size(), is(5));
+	}
+
+	@Test
+	public void bulkInsert_with_tail_param() throws Exception {
+		setThreadConnection(con);
+		String sql = "INSERT INTO people (id, name, age)"
+				+ " VALUES (/* id */0, /* name */'', /* age */0)"
+				+ " ON DUPLICATE KEY UPDATE age = /* newAge */0";
+		List<ParamMap> rows = new ArrayList<ParamMap>();
+		for (int i = 0; i < 5; i++)
+			rows.add(params("id", 100 + i).$("name", "Bulk" + i).$("age", 20)
+					.$("newAge", 22));
+		int count = sqlManager().useSQL(sql).bulkInsert(rows, 2);
+		assertThat(count, is(5));
+		assertThat(sqlManager().useFile(getClass(), "Select.sql").findAll(
+				Tameshi.class, params("$age", 20)).size(), is(5));
+
+		// the parameter out of the tuple is bound for each row.
+		sqlManager().useSQL(sql).bulkInsert(rows.subList(0, 2), 2);
+		assertThat(sqlManager().useFile(getClass(), "Select.sql").findAll(
+				Tameshi.class, params("$age", 22)).size(), is(2));
+	}
+
+	@Test
+	public void call_with_out_param() throws Exception {
+		// DDL of MySQL commits implicitly, so creates it before any update.
+		Statement ddl = con.createStatement();
+		try {
+			ddl.execute("DROP PROCEDURE IF EXISTS people_by_age");
+			ddl.execute("CREATE PROCEDURE people_by_age(IN p_age INT, OUT p_count INT)"
+					+ " BEGIN"
+					+ " SELECT id, name, age FROM people WHERE age = p_age ORDER BY id;"
+					+ " SELECT COUNT(*) INTO p_count FROM people WHERE age = p_age;"
+					+ " SELECT COUNT(*) AS cnt FROM people;" + " END");
+		} finally {
+			ddl.close();
+		}
+		OutParam<Integer> count = OutParam.out(Integer.class);
+		CallResult result = sqlManager(con).useSQL(
+				"{call people_by_age(/* age */0, /* count */0)}").call(
+				params("age", 31).$("count", count));
+		try {
+			List<Tameshi> list = new ArrayList<Tameshi>();
+			for (Tameshi tameshi : result.next(Tameshi.class))
+				list.add(tameshi);
+			assertThat(list.size(), is(2));
+			assertThat(result.next().iterator().next().get("cnt"),
+					is((Object) 5L));
+			assertThat(result.next(), is(nullValue()));
+		} finally {
+			result.close();
+		}
+		assertThat(count.get(), is(2));
+	}
+
+	@Test
+	public void csvLoader_with_reject() throws Exception {
+		setThreadConnection(con);
+		Path csv = Files.createTempFile("people", ".csv");
+		Path rejected = Files.createTempFile("people", ".rejected.csv");
+		StringBuilder sb = new StringBuilder("\"id\",\"name\",\"age\"\r\n");
+		for (int i = 0; i < 5; i++)
+			sb.append(100 + i).append(",\"Csv").append(i).append("\",20\r\n");
+		sb.append("105,\"Csv5\",twenty\r\n");
+		Files.write(csv, sb.toString().getBytes("UTF-8"));
+		try {
+			CsvLoader.Result result = sqlManager().useFile(getClass(),
+					"Insert.sql").csvLoader().type("id", Integer.class).type(
+					"age", Integer.class).rowsPerStatement(2).rejectFile(
+					rejected).load(csv);
+			assertThat(result.loaded, is(5L));
+			assertThat(result.rejected, is(1L));
+			assertThat(new String(Files.readAllBytes(rejected), "UTF-8"),
+					is("\"id\",\"name\",\"age\"\r\n105,\"Csv5\",twenty\r\n"));
+			List<Tameshi> list = sqlManager().useFile(getClass(),
+					"Select.sql").findAll(Tameshi.class, params("$age", 20));
+			assertThat(list.size(), is(5));
+		} finally {
+			Files.delete(csv);
+			Files.delete(rejected);
+		}
+	}
+
 	@Test
 	public void update_by_no_param() throws Exception {
 		setThreadConnection(con);
@@ -317,6 +758,34 @@ public class SQLManagerTest {
 				NoDefaultConstructor.class);
 	}
 
+	@Test
+	public void shared_by_threads() throws InterruptedException {
+		final SQLManager sqlManager = sqlManager(Product.MYSQL);
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			final int id = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 100; j++) {
+						SQLExecutor executor = sqlManager
+								.useSQL("select * from people where id = /* id */1");
+						executor.generateSql(params("id", id));
+						if (!executor.getSQLInfo().contains("[" + id + "]"))
+							failures.incrementAndGet();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertThat(failures.get(), is(0));
+		assertThat(sqlManager.getSql(),
+				is("select * from people where id = ?"));
+	}
+
 	public static class Tameshi {
 		int id;
 		String name;
@@ -0,0 +1,60 @@
+package tetz42.clione.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+
+import org.junit.Test;
+
+public class NegativePredicateTest {
+
+	@Test
+	public void default_negatives() {
+		NegativePredicate p = NegativePredicate.DEFAULT;
+		assertThat(p.isNegative(null), is(true));
+		assertThat(p.isNegative(Boolean.FALSE), is(true));
+		assertThat(p.isNegative(Boolean.TRUE), is(false));
+		assertThat(p.isNegative(""), is(false));
+		assertThat(p.isNegative(new ArrayList<Object>()), is(false));
+	}
+
+	@Test
+	public void empty_string() {
+		NegativePredicate p = NegativePredicate.of("");
+		assertThat(p.isNegative(""), is(true));
+		assertThat(p.isNegative(new String("")), is(true));
+		assertThat(p.isNegative(" "), is(false));
+	}
+
+	@Test
+	public void empty_collections() {
+		NegativePredicate p = NegativePredicate.of(new ArrayList<Object>());
+		assertThat(p.isNegative(new LinkedList<Object>()), is(true));
+		assertThat(p.isNegative(Arrays.asList("a")), is(false));
+		assertThat(p.isNegative(new HashSet<Object>()), is(false));
+	}
+
+	@Test
+	public void other_values() {
+		NegativePredicate p = NegativePredicate.of("-", 0L);
+		assertThat(p.isNegative("-"), is(true));
+		assertThat(p.isNegative(0L), is(true));
+		assertThat(p.isNegative(0), is(false));
+		assertThat(p.isAllNegative("-", null, 0L), is(true));
+		assertThat(p.isAllNegative(Arrays.asList("-", "a")), is(false));
+	}
+
+	@Test
+	public void with_does_not_change_original() {
+		NegativePredicate p = NegativePredicate.of("");
+		NegativePredicate p2 = p.with("-");
+		assertThat(p.isNegative("-"), is(false));
+		assertThat(p2.isNegative("-"), is(true));
+		assertThat(p2.isNegative(""), is(true));
+		assertThat(p.with(""), is(sameInstance(p)));
+	}
+}
@@ -0,0 +1,56 @@
+package tetz42.clione.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ParamListTest {
+
+	@Test
+	public void refer_collection_and_array() {
+		List<Object> src = Arrays.asList((Object) "a", "b");
+		ParamList list = new ParamList();
+		list.add("x");
+		list.addReference(src).addArrayReference(new int[] { 1, 2 });
+		assertThat(list.size(), is(5));
+		assertThat(list.toString(), is("[x, a, b, 1, 2]"));
+		assertThat(list.get(4), is((Object) 2));
+	}
+
+	@Test
+	public void merge_keeps_references() {
+		List<Object> src = new ArrayList<Object>(Arrays.asList("a", "b"));
+		ParamList list1 = new ParamList();
+		list1.add("x");
+		ParamList list2 = new ParamList().addReference(src);
+		list1.addAll(list2);
+		list1.add("y");
+		assertThat(list1.toString(), is("[x, a, b, y]"));
+		assertThat(list2.toString(), is("[a, b]"));
+	}
+
+	@Test
+	public void set_does_not_modify_source() {
+		List<Object> src = new ArrayList<Object>(Arrays.asList("a", "b"));
+		ParamList list = new ParamList().addReference(src);
+		list.set(1, "c");
+		assertThat(list.toString(), is("[a, c]"));
+		assertThat(src.toString(), is("[a, b]"));
+	}
+
+	@Test
+	public void get_from_not_random_access_collection() {
+		ParamList list = new ParamList()
+				.addReference(new LinkedHashSet<Object>(Arrays.asList("a",
+						"b", "c")));
+		assertThat(list.get(2), is((Object) "c"));
+		list.clear();
+		assertThat(list.size(), is(0));
+	}
+}
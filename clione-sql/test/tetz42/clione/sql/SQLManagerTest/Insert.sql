@@ -0,0 +1,9 @@
+INSERT INTO people (
+        id
+        , name
+        , age
+    ) VALUES (
+        /* id */100
+        , /* name */'Bulk'
+        , /* age */20
+    )
\ No newline at end of file
@@ -0,0 +1,9 @@
+SELECT
+        *
+    FROM
+        people
+    WHERE
+        age >= /* @lo */0
+        AND age < /* @hi */200
+    ORDER BY
+        age
\ No newline at end of file
@@ -1,10 +1,14 @@
 package tetz42.clione.util;
 
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
 import static tetz42.clione.SQLManager.*;
 import static tetz42.test.Auty.*;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 import org.junit.Test;
 
@@ -29,6 +33,70 @@ public class ParamMapTest {
 //				"hasInnerClass");
 	}
 
+	@Test
+	public void normalizeKey() {
+		assertThat(ParamMap.normalizeKey("name"), is("name"));
+		assertThat(ParamMap.normalizeKey("$name"), is("name"));
+		assertThat(ParamMap.normalizeKey(":name_1"), is("name_1"));
+		assertThat(ParamMap.normalizeKey("1st"), is("1st"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void normalizeKey_unsupported() {
+		ParamMap.normalizeKey("!name");
+	}
+
+	@Test
+	public void getNormalized() {
+		ParamMap map = params("@name", "tako");
+		assertThat(map.getNormalized("name"), is((Object) "tako"));
+		assertThat(map.get("$name"), is((Object) "tako"));
+	}
+
+	@Test
+	public void bean_flattened_twice() {
+		for (int i = 0; i < 2; i++) {
+			ParamMap map = params(new TestParam());
+			assertThat(map.size(), is(4));
+			assertThat(map.get("name"), is((Object) "tako"));
+			assertThat(map.get("leg"), is((Object) 8));
+			assertThat(map.get("obj_i"), is((Object) 0));
+		}
+	}
+
+	@Test
+	public void lazyParams_resolves_keys_on_demand() {
+		ParamMap map = lazyParams(new TestParam()).$("leg", 10);
+		assertThat(map.get("name"), is((Object) "tako"));
+		assertThat(map.get("leg"), is((Object) 10));
+		assertThat(map.get("obj_i"), is((Object) 0));
+		assertThat(map.get("obj_j"), is(nullValue()));
+		assertThat(map.keySet().size(), is(4));
+		assertThat(map.get("leg"), is((Object) 10));
+	}
+
+	@Test
+	public void lazyParams_default_methods_see_bean() {
+		ParamMap map = lazyParams(new TestParam());
+		assertThat(map.getOrDefault("name", "ika"), is((Object) "tako"));
+		assertThat(map.getOrDefault("none", "ika"), is((Object) "ika"));
+		assertThat(map.putIfAbsent("leg", 10), is((Object) 8));
+		assertThat(map.merge("leg", 2, new BiFunction<Object, Object, Object>() {
+			@Override
+			public Object apply(Object a, Object b) {
+				return (Integer) a + (Integer) b;
+			}
+		}), is((Object) 10));
+		final int[] count = { 0 };
+		lazyParams(new TestParam()).forEach(new BiConsumer<String, Object>() {
+			@Override
+			public void accept(String key, Object value) {
+				count[0]++;
+			}
+		});
+		assertThat(count[0], is(4));
+	}
+
 }
 
 class TestParam {
@@ -0,0 +1,49 @@
+package tetz42.clione.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ResultMapTest {
+
+	@Test
+	public void compact_get_ignoring_case() {
+		ColumnIndex index = new ColumnIndex("ID", "NAME", "ID");
+		ResultMap map = new ResultMap(index, new Object[] { 2, "Tao" });
+		assertThat(map.size(), is(2));
+		assertThat(map.get("ID"), is((Object) 2));
+		assertThat(map.get("name"), is((Object) "Tao"));
+		assertThat(map.getInt("id"), is(2));
+		assertThat(map.getString("Name"), is("Tao"));
+		assertThat(map.containsKey("name"), is(false));
+		assertThat(map.toString(), is("{ID=2, NAME=Tao}"));
+	}
+
+	@Test
+	public void compact_equals_ordinary_map() {
+		ResultMap map = new ResultMap(new ColumnIndex("ID", "NAME"),
+				new Object[] { 2, "Tao" });
+		Map<String, Object> expected = new LinkedHashMap<String, Object>();
+		expected.put("ID", 2);
+		expected.put("NAME", "Tao");
+		assertThat(map.equals(expected), is(true));
+		assertThat(expected.equals(map), is(true));
+		assertThat(map.hashCode(), is(expected.hashCode()));
+	}
+
+	@Test
+	public void compact_put_new_key() {
+		ResultMap map = new ResultMap(new ColumnIndex("ID", "NAME"),
+				new Object[] { 2, "Tao" });
+		map.put("NAME", "Takao");
+		map.put("AGE", 35);
+		assertThat(map.toString(), is("{ID=2, NAME=Takao, AGE=35}"));
+		assertThat(map.get("age"), is((Object) 35));
+		map.remove("ID");
+		assertThat(map.toString(), is("{NAME=Takao, AGE=35}"));
+	}
+}